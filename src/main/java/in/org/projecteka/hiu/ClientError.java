@@ -71,6 +71,17 @@ public class ClientError extends Throwable {
                         "Action can't be performed, consent request is not granted yet")));
     }
 
+    public static ClientError invalidPageCursor() {
+        return new ClientError(BAD_REQUEST,
+                new ErrorRepresentation(new Error(ErrorCode.INVALID_REQUEST, "Invalid page cursor")));
+    }
+
+    public static ClientError offsetWithPageCursor() {
+        return new ClientError(BAD_REQUEST,
+                new ErrorRepresentation(new Error(ErrorCode.INVALID_REQUEST,
+                        "Offset can't be given along with a page cursor")));
+    }
+
     public static ClientError invalidEntryError(String errorMessage) {
         return new ClientError(BAD_REQUEST,
                 new ErrorRepresentation(new Error(ErrorCode.INVALID_DATA_FLOW_ENTRY, errorMessage)));
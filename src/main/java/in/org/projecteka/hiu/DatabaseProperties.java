@@ -21,6 +21,8 @@ public class DatabaseProperties {
     private String user;
     private String password;
     private int poolSize;
+    //Prepared statements kept per connection, 0 prepares every query afresh
+    private int preparedStatementCacheSize;
     private boolean replicaReadEnabled;
     private Replica replica;
 
@@ -34,6 +36,10 @@ public class DatabaseProperties {
         return poolSize / 2 + poolSize % 2;
     }
 
+    public boolean cachePreparedStatements() {
+        return preparedStatementCacheSize > 0;
+    }
+
     public int getPoolSize() {
         return replica != null && replicaReadEnabled
                 ? poolSize
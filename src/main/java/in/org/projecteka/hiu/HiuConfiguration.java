@@ -1,5 +1,6 @@
 package in.org.projecteka.hiu;
 
+import ca.uhn.fhir.context.FhirContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -33,6 +34,9 @@ import in.org.projecteka.hiu.common.UserAuthenticator;
 import in.org.projecteka.hiu.common.cache.CacheAdapter;
 import in.org.projecteka.hiu.common.cache.LoadingCacheGenericAdapter;
 import in.org.projecteka.hiu.common.cache.RedisGenericAdapter;
+import in.org.projecteka.hiu.common.deadletter.DeadLetterReplayProperties;
+import in.org.projecteka.hiu.common.deadletter.DeadLetterReplayScheduler;
+import in.org.projecteka.hiu.common.deadletter.DeadLetterReplayer;
 import in.org.projecteka.hiu.common.heartbeat.CacheHealth;
 import in.org.projecteka.hiu.common.heartbeat.Heartbeat;
 import in.org.projecteka.hiu.common.heartbeat.RabbitMQOptions;
@@ -53,14 +57,37 @@ import in.org.projecteka.hiu.dataflow.DataFlowRepository;
 import in.org.projecteka.hiu.dataflow.DataFlowRequestListener;
 import in.org.projecteka.hiu.dataflow.DataFlowService;
 import in.org.projecteka.hiu.dataflow.DataFlowServiceProperties;
+import in.org.projecteka.hiu.dataflow.AesGcmCipher;
+import in.org.projecteka.hiu.dataflow.BouncyCastleAesGcmCipher;
 import in.org.projecteka.hiu.dataflow.Decryptor;
 import in.org.projecteka.hiu.dataflow.HealthInfoManager;
 import in.org.projecteka.hiu.dataflow.HealthInformationRepository;
+import in.org.projecteka.hiu.dataflow.JceAesGcmCipher;
 import in.org.projecteka.hiu.dataflow.LocalDataStore;
 import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
 import in.org.projecteka.hiu.dataflow.model.PatientHealthInfoStatus;
+import in.org.projecteka.hiu.dataprocessor.AttachmentDataTypeProcessor;
+import in.org.projecteka.hiu.dataprocessor.AttachmentDownloader;
+import in.org.projecteka.hiu.dataprocessor.AttachmentStore;
+import in.org.projecteka.hiu.dataprocessor.BinaryResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.CompositionResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.ConditionResourceProcessor;
 import in.org.projecteka.hiu.dataprocessor.DataAvailabilityListener;
+import in.org.projecteka.hiu.dataprocessor.DataProcessorProperties;
+import in.org.projecteka.hiu.dataprocessor.DiagnosticReportResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.DocumentReferenceResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.HealthDataProcessor;
 import in.org.projecteka.hiu.dataprocessor.HealthDataRepository;
+import in.org.projecteka.hiu.dataprocessor.HealthInfoNotificationDispatcher;
+import in.org.projecteka.hiu.dataprocessor.HealthInfoNotificationListener;
+import in.org.projecteka.hiu.dataprocessor.HealthInfoNotificationPublisher;
+import in.org.projecteka.hiu.dataprocessor.ImmunizationRecommendationProcessor;
+import in.org.projecteka.hiu.dataprocessor.ImmunizationResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.MedicationRequestResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.ObservationResourceProcessor;
+import in.org.projecteka.hiu.dataprocessor.ResourceProcessorRegistry;
+import in.org.projecteka.hiu.dataprocessor.TransactionMetadataCache;
+import in.org.projecteka.hiu.dicomweb.OrthancDicomWebServer;
 import in.org.projecteka.hiu.patient.PatientService;
 import in.org.projecteka.hiu.patient.model.PatientSearchGatewayResponse;
 import in.org.projecteka.hiu.user.JWTGenerator;
@@ -85,6 +112,7 @@ import org.springframework.amqp.core.ExchangeBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -146,10 +174,12 @@ import static in.org.projecteka.hiu.common.Constants.EMPTY_STRING;
 import static io.lettuce.core.ReadFrom.MASTER_PREFERRED;
 import static java.time.Duration.ofDays;
 import static java.time.Duration.ofMinutes;
+import static java.time.Duration.ofSeconds;
 
 @Configuration
 public class HiuConfiguration {
     private static final String HIU_DEAD_LETTER_EXCHANGE = "hiu-dead-letter-exchange";
+    private static final String BOUNCY_CASTLE = "bouncycastle";
     public static final String HIU_DEAD_LETTER_ROUTING_KEY = "deadLetter";
     public static final String EXCHANGE = "exchange";
 
@@ -161,6 +191,10 @@ public class HiuConfiguration {
                 .setDatabase(dbProps.getSchema())
                 .setUser(dbProps.getUser())
                 .setPassword(dbProps.getPassword());
+        if (dbProps.cachePreparedStatements()) {
+            connectOptions.setCachePreparedStatements(true)
+                    .setPreparedStatementCacheMaxSize(dbProps.getPreparedStatementCacheSize());
+        }
 
         PoolOptions poolOptions = new PoolOptions().setMaxSize(dbProps.getPoolSize());
         return PgPool.pool(connectOptions, poolOptions);
@@ -174,6 +208,10 @@ public class HiuConfiguration {
                 .setDatabase(dbProps.getSchema())
                 .setUser(dbProps.getReplica().getUser())
                 .setPassword(dbProps.getReplica().getPassword());
+        if (dbProps.cachePreparedStatements()) {
+            connectOptions.setCachePreparedStatements(true)
+                    .setPreparedStatementCacheMaxSize(dbProps.getPreparedStatementCacheSize());
+        }
 
         PoolOptions poolOptions = new PoolOptions().setMaxSize(dbProps.getReplica().getPoolSize());
         return PgPool.pool(connectOptions, poolOptions);
@@ -549,10 +587,14 @@ public class HiuConfiguration {
                 new DestinationInfo(EXCHANGE, queueNames.getDataFlowRequestQueue()));
         queues.put(queueNames.getDataFlowProcessQueue(),
                 new DestinationInfo(EXCHANGE, queueNames.getDataFlowProcessQueue()));
+        queues.put(queueNames.getDataFlowProcessLargeQueue(),
+                new DestinationInfo(EXCHANGE, queueNames.getDataFlowProcessLargeQueue()));
         queues.put(queueNames.getDataFlowDeleteQueue(),
                 new DestinationInfo(EXCHANGE, queueNames.getDataFlowDeleteQueue()));
         queues.put(queueNames.getHealthInfoQueue(),
                 new DestinationInfo(EXCHANGE, queueNames.getHealthInfoQueue()));
+        queues.put(queueNames.getHealthInfoNotificationQueue(),
+                new DestinationInfo(EXCHANGE, queueNames.getHealthInfoNotificationQueue()));
 
         DestinationsConfig destinationsConfig = new DestinationsConfig(queues, null);
         Queue deadLetterQueue = QueueBuilder.durable(queueNames.getHIUDeadLetterQueue()).build();
@@ -597,8 +639,13 @@ public class HiuConfiguration {
     @Bean
     public MessageListenerContainerFactory messageListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            Jackson2JsonMessageConverter jackson2JsonMessageConverter) {
-        return new MessageListenerContainerFactory(connectionFactory, jackson2JsonMessageConverter);
+            Jackson2JsonMessageConverter jackson2JsonMessageConverter,
+            ListenerProperties listenerProperties,
+            RabbitQueueNames queueNames) {
+        return new MessageListenerContainerFactory(connectionFactory,
+                jackson2JsonMessageConverter,
+                listenerProperties,
+                queueNames);
     }
 
     @Bean
@@ -620,8 +667,13 @@ public class HiuConfiguration {
     }
 
     @Bean
-    public Decryptor decryptor() {
-        return new Decryptor();
+    public Decryptor decryptor(DataProcessorProperties dataProcessorProperties) {
+        AesGcmCipher cipher = BOUNCY_CASTLE.equalsIgnoreCase(dataProcessorProperties.getAesGcmProvider())
+                              ? new BouncyCastleAesGcmCipher()
+                              : new JceAesGcmCipher();
+        return new Decryptor(cipher,
+                dataProcessorProperties.getCryptoCacheSize(),
+                ofMinutes(dataProcessorProperties.getCryptoCacheExpiryInMinutes()));
     }
 
     @Bean
@@ -713,30 +765,136 @@ public class HiuConfiguration {
     }
 
     @Bean
-    public DataAvailabilityListener dataAvailabilityListener(
+    public FhirContext fhirContext() {
+        return FhirContext.forR4();
+    }
+
+    @Bean
+    public AttachmentDownloader attachmentDownloader(DataProcessorProperties dataProcessorProperties) {
+        return new AttachmentDownloader(dataProcessorProperties.getDownloadConnectionsPerHost(),
+                dataProcessorProperties.getDownloadMaxConnections(),
+                dataProcessorProperties.getDownloadParallelism(),
+                ofSeconds(dataProcessorProperties.getDownloadTimeoutInSeconds()),
+                dataProcessorProperties.getDownloadMaxRetries(),
+                dataProcessorProperties.getDownloadMaxSizeInBytes());
+    }
+
+    @Bean
+    public OrthancDicomWebServer localDicomWebServer(LocalDicomServerProperties dicomServerProperties) {
+        return new OrthancDicomWebServer(dicomServerProperties);
+    }
+
+    @Bean
+    public ResourceProcessorRegistry resourceProcessorRegistry(OrthancDicomWebServer localDicomWebServer,
+                                                               AttachmentDownloader attachmentDownloader) {
+        var attachmentStore = new AttachmentStore();
+        var attachmentProcessor = new AttachmentDataTypeProcessor(attachmentDownloader, attachmentStore);
+        return new ResourceProcessorRegistry(List.of(
+                new CompositionResourceProcessor(),
+                new DiagnosticReportResourceProcessor(localDicomWebServer, attachmentProcessor),
+                new DocumentReferenceResourceProcessor(attachmentProcessor),
+                new MedicationRequestResourceProcessor(),
+                new ConditionResourceProcessor(),
+                new ObservationResourceProcessor(),
+                new BinaryResourceProcessor(attachmentStore),
+                new ImmunizationResourceProcessor(),
+                new ImmunizationRecommendationProcessor()));
+    }
+
+    @Bean
+    public HealthDataProcessor healthDataProcessor(HealthDataRepository healthDataRepository,
+                                                   DataFlowRepository dataFlowRepository,
+                                                   Decryptor decryptor,
+                                                   ResourceProcessorRegistry resourceProcessorRegistry,
+                                                   HealthInformationClient healthInformationClient,
+                                                   HiuProperties hiuProperties,
+                                                   TransactionMetadataCache transactionMetadataCache,
+                                                   FhirContext fhirContext,
+                                                   DataProcessorProperties dataProcessorProperties,
+                                                   HealthInfoNotificationPublisher healthInfoNotificationPublisher) {
+        return new HealthDataProcessor(healthDataRepository,
+                dataFlowRepository,
+                decryptor,
+                resourceProcessorRegistry,
+                healthInformationClient,
+                hiuProperties,
+                transactionMetadataCache,
+                fhirContext,
+                dataProcessorProperties,
+                healthInfoNotificationPublisher);
+    }
+
+    @Bean
+    public TransactionMetadataCache transactionMetadataCache(DataFlowRepository dataFlowRepository,
+                                                             DataProcessorProperties dataProcessorProperties) {
+        return new TransactionMetadataCache(dataFlowRepository,
+                dataProcessorProperties.getTransactionMetadataCacheSize(),
+                ofMinutes(dataProcessorProperties.getTransactionMetadataCacheExpiryInMinutes()));
+    }
+
+    @Bean
+    public HealthInfoNotificationPublisher healthInfoNotificationPublisher(AmqpTemplate amqpTemplate,
+                                                                           DestinationsConfig destinationsConfig,
+                                                                           RabbitQueueNames queueNames) {
+        return new HealthInfoNotificationPublisher(amqpTemplate, destinationsConfig, queueNames);
+    }
+
+    @Bean
+    public HealthInfoNotificationDispatcher healthInfoNotificationDispatcher(
+            Gateway gateway,
+            TransactionMetadataCache transactionMetadataCache,
+            HealthInformationClient healthInformationClient,
+            DataProcessorProperties dataProcessorProperties) {
+        return new HealthInfoNotificationDispatcher(gateway,
+                transactionMetadataCache,
+                healthInformationClient,
+                dataProcessorProperties.getNotificationMaxRetries(),
+                ofSeconds(dataProcessorProperties.getNotificationRetryBackoffInSeconds()));
+    }
+
+    @Bean
+    public HealthInfoNotificationListener healthInfoNotificationListener(
             MessageListenerContainerFactory messageListenerContainerFactory,
             DestinationsConfig destinationsConfig,
-            HealthDataRepository healthDataRepository,
-            DataFlowRepository dataFlowRepository,
-            LocalDicomServerProperties dicomServerProperties,
-            HealthInformationClient healthInformationClient,
-            Gateway gateway,
-            HiuProperties hiuProperties,
-            ConsentRepository consentRepository,
+            HealthInfoNotificationDispatcher healthInfoNotificationDispatcher,
             RabbitQueueNames queueNames) {
-        return new DataAvailabilityListener(
+        return new HealthInfoNotificationListener(
                 messageListenerContainerFactory,
                 destinationsConfig,
-                healthDataRepository,
-                dataFlowRepository,
-                dicomServerProperties,
-                healthInformationClient,
-                gateway,
-                hiuProperties,
-                consentRepository,
+                healthInfoNotificationDispatcher,
                 queueNames);
     }
 
+    @Bean
+    public DataAvailabilityListener dataAvailabilityListener(
+            MessageListenerContainerFactory messageListenerContainerFactory,
+            DestinationsConfig destinationsConfig,
+            HealthDataProcessor healthDataProcessor,
+            RabbitQueueNames queueNames,
+            DataProcessorProperties dataProcessorProperties) {
+        return new DataAvailabilityListener(
+                messageListenerContainerFactory,
+                destinationsConfig,
+                healthDataProcessor,
+                queueNames,
+                dataProcessorProperties);
+    }
+
+    @Bean
+    public DeadLetterReplayer deadLetterReplayer(RabbitOperations rabbitOperations,
+                                                 DestinationsConfig destinationsConfig,
+                                                 RabbitQueueNames queueNames,
+                                                 DeadLetterReplayProperties deadLetterReplayProperties) {
+        return new DeadLetterReplayer(rabbitOperations, destinationsConfig, queueNames, deadLetterReplayProperties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "hiu.deadletterreplay.scheduled", havingValue = "true")
+    public DeadLetterReplayScheduler deadLetterReplayScheduler(DeadLetterReplayer deadLetterReplayer,
+                                                               DeadLetterReplayProperties deadLetterReplayProperties) {
+        return new DeadLetterReplayScheduler(deadLetterReplayer, deadLetterReplayProperties);
+    }
+
     @Bean
     public GatewayAuthenticationClient centralRegistryClient(
             @Qualifier("customBuilder") WebClient.Builder builder,
@@ -0,0 +1,63 @@
+package in.org.projecteka.hiu;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Consumer settings for the AMQP listeners. Queues are keyed by their name without the rabbitmq queue prefix
+ * (e.g. data-flow-process-queue). Settings not given for a queue, or the queue as a whole, fall back to the
+ * defaults, and settings not given there to the built-in ones.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "hiu.listeners")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@AllArgsConstructor
+public class ListenerProperties {
+    private static final ConsumerOptions BUILT_IN = new ConsumerOptions(1, 1, 250, 1, 10, 10);
+
+    private ConsumerOptions defaults = new ConsumerOptions();
+    private Map<String, ConsumerOptions> queues = new HashMap<>();
+
+    public ConsumerOptions forQueue(String queueName) {
+        return queues.getOrDefault(queueName, new ConsumerOptions())
+                .orElse(defaults)
+                .orElse(BUILT_IN);
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ConsumerOptions {
+        private Integer concurrency;
+        private Integer maxConcurrency;
+        private Integer prefetch;
+        private Integer batchSize;
+        //Number of consecutive deliveries (or idle receives) on a consumer before another one is started (or stopped)
+        private Integer consecutiveActiveTrigger;
+        private Integer consecutiveIdleTrigger;
+
+        ConsumerOptions orElse(ConsumerOptions fallback) {
+            return new ConsumerOptions(or(concurrency, fallback.concurrency),
+                    or(maxConcurrency, fallback.maxConcurrency),
+                    or(prefetch, fallback.prefetch),
+                    or(batchSize, fallback.batchSize),
+                    or(consecutiveActiveTrigger, fallback.consecutiveActiveTrigger),
+                    or(consecutiveIdleTrigger, fallback.consecutiveIdleTrigger));
+        }
+
+        private static Integer or(Integer value, Integer fallback) {
+            return value != null ? value : fallback;
+        }
+    }
+}
@@ -1,24 +1,52 @@
 package in.org.projecteka.hiu;
 
+import in.org.projecteka.hiu.common.RabbitQueueNames;
 import lombok.AllArgsConstructor;
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
 import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import org.springframework.amqp.rabbit.listener.adapter.MessageListenerAdapter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 
+import static java.lang.Math.max;
+
 @AllArgsConstructor
 public class MessageListenerContainerFactory {
     private final ConnectionFactory connectionFactory;
     private final Jackson2JsonMessageConverter converter;
+    private final ListenerProperties listenerProperties;
+    private final RabbitQueueNames queueNames;
 
     public MessageListenerContainer createMessageListenerContainer(String queueName) {
+        return createMessageListenerContainer(queueName, AcknowledgeMode.AUTO);
+    }
+
+    public MessageListenerContainer createMessageListenerContainer(String queueName, AcknowledgeMode acknowledgeMode) {
         SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
         container.addQueueNames(queueName);
+        container.setAcknowledgeMode(acknowledgeMode);
+        configureConsumers(container, listenerProperties.forQueue(queueNames.withoutPrefix(queueName)));
 
         MessageListenerAdapter messageListenerAdapter = new MessageListenerAdapter();
         messageListenerAdapter.setMessageConverter(converter);
         container.setMessageListener(messageListenerAdapter);
         return container;
     }
-}
\ No newline at end of file
+
+    /**
+     * Consumers are scaled between concurrency and maxConcurrency by the container itself, a new consumer
+     * is started when the existing ones keep receiving messages back to back (i.e. the queue has a backlog),
+     * and stopped again once they stay idle.
+     */
+    private void configureConsumers(SimpleMessageListenerContainer container,
+                                    ListenerProperties.ConsumerOptions options) {
+        int concurrency = max(options.getConcurrency(), 1);
+        container.setConcurrentConsumers(concurrency);
+        container.setMaxConcurrentConsumers(max(options.getMaxConcurrency(), concurrency));
+        container.setPrefetchCount(max(options.getPrefetch(), 1));
+        container.setBatchSize(max(options.getBatchSize(), 1));
+        container.setConsecutiveActiveTrigger(max(options.getConsecutiveActiveTrigger(), 1));
+        container.setConsecutiveIdleTrigger(max(options.getConsecutiveIdleTrigger(), 1));
+    }
+}
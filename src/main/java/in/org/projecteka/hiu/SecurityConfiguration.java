@@ -40,6 +40,7 @@ import static in.org.projecteka.hiu.common.Constants.PATH_CONSENTS_ON_FIND;
 import static in.org.projecteka.hiu.common.Constants.PATH_CONSENT_REQUESTS_ON_INIT;
 import static in.org.projecteka.hiu.common.Constants.PATH_CONSENT_REQUEST_ON_STATUS;
 import static in.org.projecteka.hiu.common.Constants.PATH_DATA_TRANSFER;
+import static in.org.projecteka.hiu.common.Constants.PATH_DEAD_LETTERS_REPLAY;
 import static in.org.projecteka.hiu.common.Constants.PATH_HEALTH_INFORMATION_HIU_ON_REQUEST;
 import static in.org.projecteka.hiu.common.Constants.PATH_HEARTBEAT;
 import static in.org.projecteka.hiu.common.Constants.PATH_READINESS;
@@ -100,6 +101,7 @@ public class SecurityConfiguration {
         httpSecurity.httpBasic().disable().formLogin().disable().csrf().disable().logout().disable();
         httpSecurity.authorizeExchange().pathMatchers(HttpMethod.POST, "/users").hasAnyRole(Role.ADMIN.toString());
         httpSecurity.authorizeExchange().pathMatchers(HttpMethod.PUT, "/users/password").authenticated();
+        httpSecurity.authorizeExchange().pathMatchers(HttpMethod.POST, PATH_DEAD_LETTERS_REPLAY).hasAnyRole(Role.ADMIN.toString());
         CM_PATIENT_APIS.forEach(entry -> httpSecurity.authorizeExchange().pathMatchers(entry.getValue()).authenticated());
         httpSecurity.authorizeExchange()
                 .pathMatchers(GATEWAY_APIS)
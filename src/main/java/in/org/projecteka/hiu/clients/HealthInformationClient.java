@@ -4,10 +4,13 @@ import in.org.projecteka.hiu.GatewayProperties;
 import in.org.projecteka.hiu.dataprocessor.model.HealthInfoNotificationRequest;
 import org.slf4j.Logger;
 import org.slf4j.MDC;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.nio.file.Path;
 import java.util.Properties;
 
 import static in.org.projecteka.hiu.ClientError.failedToNotifyCM;
@@ -31,6 +34,17 @@ public class HealthInformationClient {
     }
 
     public Mono<HealthInformation> informationFrom(String url) {
+        return retrieveInformation(url).bodyToMono(HealthInformation.class);
+    }
+
+    /**
+     * Writes the health information to the target as it is received, without holding it in memory.
+     */
+    public Mono<Void> informationTo(String url, Path target) {
+        return DataBufferUtils.write(retrieveInformation(url).bodyToFlux(DataBuffer.class), target);
+    }
+
+    private WebClient.ResponseSpec retrieveInformation(String url) {
         return client
                 .get()
                 .uri(url)
@@ -47,8 +61,7 @@ public class HealthInformationClient {
                 .onStatus(not(HttpStatus::is2xxSuccessful),
                         clientResponse -> clientResponse.bodyToMono(String.class)
                                 .doOnNext(logger::error)
-                                .then(error(new Throwable("Unknown error occurred"))))
-                .bodyToMono(HealthInformation.class);
+                                .then(error(new Throwable("Unknown error occurred"))));
     }
 
     public Mono<Void> notifyHealthInfo(HealthInfoNotificationRequest notificationRequest,
@@ -29,6 +29,7 @@ public class Constants {
     public static final String GET_CERT = "/certs";
     public static final String PATH_PATIENT_STATUS_NOTIFY = "/v0.5/patients/status/notify";
     public static final String PATH_PATIENT_STATUS_ON_NOTIFY = "/v0.5/patients/status/on-notify";
+    public static final String PATH_DEAD_LETTERS_REPLAY = "/dead-letters/replay";
 
     public static final String STATUS = "status";
     public static final String DELIMITER = "@";
@@ -0,0 +1,18 @@
+package in.org.projecteka.hiu.common;
+
+import java.util.Collection;
+
+/**
+ * Lists are bound as one array parameter, {@code column = ANY($1::text[])}, instead of being formatted into an
+ * IN clause. The query text is then the same whatever the number of values, so the prepared statement is cached
+ * by the pool and its plan reused by postgres; and the values are never spliced into the SQL. Uuid columns are
+ * compared with {@code ANY($1::text[]::uuid[])}.
+ */
+public final class QueryParameters {
+    private QueryParameters() {
+    }
+
+    public static String[] textArray(Collection<String> values) {
+        return values.toArray(String[]::new);
+    }
+}
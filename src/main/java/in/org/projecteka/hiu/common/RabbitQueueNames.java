@@ -5,26 +5,49 @@ import org.apache.commons.lang3.StringUtils;
 
 @AllArgsConstructor
 public class RabbitQueueNames {
+    public static final String DATA_FLOW_REQUEST_QUEUE = "data-flow-request-queue";
+    public static final String DATA_FLOW_PROCESS_QUEUE = "data-flow-process-queue";
+    public static final String DATA_FLOW_PROCESS_LARGE_QUEUE = "data-flow-process-large-queue";
+    public static final String DATA_FLOW_DELETE_QUEUE = "data-flow-delete-queue";
+    public static final String HEALTH_INFO_QUEUE = "health-info-queue";
+    public static final String HEALTH_INFO_NOTIFICATION_QUEUE = "health-info-notification-queue";
+    public static final String HIU_DEAD_LETTER_QUEUE = "hiu-dead-letter-queue";
+
     private final String queuePrefix;
 
     public String getDataFlowRequestQueue(){
-        return addPrefix("data-flow-request-queue");
+        return addPrefix(DATA_FLOW_REQUEST_QUEUE);
     }
 
     public String getDataFlowProcessQueue(){
-        return addPrefix("data-flow-process-queue");
+        return addPrefix(DATA_FLOW_PROCESS_QUEUE);
+    }
+
+    public String getDataFlowProcessLargeQueue(){
+        return addPrefix(DATA_FLOW_PROCESS_LARGE_QUEUE);
     }
 
     public String getDataFlowDeleteQueue(){
-        return addPrefix("data-flow-delete-queue");
+        return addPrefix(DATA_FLOW_DELETE_QUEUE);
     }
 
     public String getHealthInfoQueue(){
-        return addPrefix("health-info-queue");
+        return addPrefix(HEALTH_INFO_QUEUE);
+    }
+
+    public String getHealthInfoNotificationQueue(){
+        return addPrefix(HEALTH_INFO_NOTIFICATION_QUEUE);
     }
 
     public String getHIUDeadLetterQueue(){
-        return addPrefix("hiu-dead-letter-queue");
+        return addPrefix(HIU_DEAD_LETTER_QUEUE);
+    }
+
+    public String withoutPrefix(String queueName) {
+        if (StringUtils.isEmpty(queuePrefix)) {
+            return queueName;
+        }
+        return StringUtils.removeStart(queueName, String.format("%s-", queuePrefix));
     }
 
     private String addPrefix(String queueName){
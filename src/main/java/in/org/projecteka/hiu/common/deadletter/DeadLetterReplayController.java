@@ -0,0 +1,21 @@
+package in.org.projecteka.hiu.common.deadletter;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import static in.org.projecteka.hiu.common.Constants.PATH_DEAD_LETTERS_REPLAY;
+
+@RestController
+@AllArgsConstructor
+public class DeadLetterReplayController {
+    private final DeadLetterReplayer deadLetterReplayer;
+
+    @PostMapping(PATH_DEAD_LETTERS_REPLAY)
+    public Mono<DeadLetterReplayReport> replay(@RequestParam(required = false) String queue,
+                                               @RequestParam(required = false) Integer limit) {
+        return deadLetterReplayer.replay(queue, limit);
+    }
+}
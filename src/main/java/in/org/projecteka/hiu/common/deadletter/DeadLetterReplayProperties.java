@@ -0,0 +1,28 @@
+package in.org.projecteka.hiu.common.deadletter;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "hiu.deadletterreplay")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@AllArgsConstructor
+public class DeadLetterReplayProperties {
+    //Messages republished per second, and republished at the same time
+    private int messagesPerSecond = 10;
+    private int concurrency = 2;
+    //Most messages taken off the dead letter queue in one replay
+    private int batchSize = 500;
+    //Messages dead lettered more often than this are left on the dead letter queue
+    private int maxDeathCount = 5;
+    //Replay the dead letter queue periodically, besides on request
+    private boolean scheduled;
+    private int scheduleIntervalInMinutes = 15;
+}
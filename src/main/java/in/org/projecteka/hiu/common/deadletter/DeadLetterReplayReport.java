@@ -0,0 +1,33 @@
+package in.org.projecteka.hiu.common.deadletter;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Outcome of a replay: the messages republished to each queue, the messages put back on the dead letter queue
+ * (unknown queue, another queue than the one replayed, or dead lettered too often) and the ones that failed.
+ */
+@Getter
+public class DeadLetterReplayReport {
+    private final Map<String, Integer> replayed = new HashMap<>();
+    private int deferred;
+    private int failed;
+
+    void add(DeadLetterReplayer.Outcome outcome) {
+        switch (outcome.getStatus()) {
+            case REPLAYED:
+                replayed.merge(outcome.getQueue(), 1, Integer::sum);
+                break;
+            case DEFERRED:
+                deferred++;
+                break;
+            case FAILED:
+                failed++;
+                break;
+            default:
+                break;
+        }
+    }
+}
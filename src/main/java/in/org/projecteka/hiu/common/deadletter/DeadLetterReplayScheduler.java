@@ -0,0 +1,45 @@
+package in.org.projecteka.hiu.common.deadletter;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Replays the dead letter queue every scheduleIntervalInMinutes. A replay still running when the next one is due
+ * is not overlapped, the tick is dropped.
+ */
+@RequiredArgsConstructor
+public class DeadLetterReplayScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterReplayScheduler.class);
+
+    private final DeadLetterReplayer deadLetterReplayer;
+    private final DeadLetterReplayProperties properties;
+    private Disposable replays;
+
+    @PostConstruct
+    public void start() {
+        Duration interval = Duration.ofMinutes(Math.max(1, properties.getScheduleIntervalInMinutes()));
+        replays = Flux.interval(interval, interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> deadLetterReplayer.replay(null, null)
+                        .onErrorResume(error -> {
+                            logger.error("Scheduled replay of dead letters failed", error);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (replays != null) {
+            replays.dispose();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package in.org.projecteka.hiu.common.deadletter;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import in.org.projecteka.hiu.DestinationsConfig;
+import in.org.projecteka.hiu.common.RabbitQueueNames;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Moves messages off the dead letter queue, back to the queue they were dead lettered from. The queue is read
+ * from the x-death header the broker adds, by the original routing key; queues are bound with their own name as
+ * the routing key. Messages are republished at most messagesPerSecond, concurrency at a time, so a replay after
+ * an outage doesn't flood the database or the gateway. A replay handles the messages queued when it starts, up
+ * to a limit; the ones not replayed are put back at the end of the dead letter queue.
+ */
+@AllArgsConstructor
+public class DeadLetterReplayer {
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterReplayer.class);
+    private static final String X_DEATH = "x-death";
+    private static final String DEFAULT_EXCHANGE = "";
+    private static final long NANOS_PER_SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final RabbitOperations rabbitOperations;
+    private final DestinationsConfig destinationsConfig;
+    private final RabbitQueueNames queueNames;
+    private final DeadLetterReplayProperties properties;
+
+    /**
+     * Replays dead letters of the given queue (with or without the queue prefix), or of every queue when it is
+     * null. At most limit messages are taken off the dead letter queue, batchSize when it is null.
+     */
+    public Mono<DeadLetterReplayReport> replay(String queue, Integer limit) {
+        long maxMessages = Math.max(0, limit == null ? properties.getBatchSize() : limit);
+        Duration interval = Duration.ofNanos(NANOS_PER_SECOND / Math.max(1, properties.getMessagesPerSecond()));
+        return Mono.fromCallable(this::pendingMessages)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(pending -> Flux.range(0, (int) Math.min(pending, maxMessages)))
+                .delayElements(interval)
+                .flatMap(ignored -> Mono.fromCallable(() -> replayNext(queue)).subscribeOn(Schedulers.boundedElastic()),
+                        Math.max(1, properties.getConcurrency()))
+                .takeWhile(outcome -> outcome.getStatus() != Status.DRAINED)
+                .collect(DeadLetterReplayReport::new, DeadLetterReplayReport::add)
+                .doOnNext(report -> logger.info("Replayed dead letters {}, deferred {}, failed {}",
+                        report.getReplayed(), report.getDeferred(), report.getFailed()));
+    }
+
+    private long pendingMessages() {
+        Long pending = rabbitOperations.execute(channel -> channel.messageCount(deadLetterQueue()));
+        return pending == null ? 0 : pending;
+    }
+
+    private Outcome replayNext(String queue) {
+        return rabbitOperations.execute(channel -> {
+            GetResponse message = channel.basicGet(deadLetterQueue(), false);
+            if (message == null) {
+                return Outcome.drained();
+            }
+            long deliveryTag = message.getEnvelope().getDeliveryTag();
+            try {
+                Optional<String> origin = originOf(message.getProps());
+                DestinationsConfig.DestinationInfo destination = origin
+                        .map(routingKey -> destinationsConfig.getQueues().get(routingKey))
+                        .orElse(null);
+                if (destination == null
+                        || !isRequested(queue, origin.get())
+                        || deathCount(message.getProps()) > properties.getMaxDeathCount()) {
+                    channel.basicPublish(DEFAULT_EXCHANGE, deadLetterQueue(), message.getProps(), message.getBody());
+                    channel.basicAck(deliveryTag, false);
+                    return Outcome.deferred();
+                }
+                channel.basicPublish(destination.getExchange(),
+                        destination.getRoutingKey(),
+                        message.getProps(),
+                        message.getBody());
+                channel.basicAck(deliveryTag, false);
+                return Outcome.replayed(queueNames.withoutPrefix(origin.get()));
+            } catch (IOException e) {
+                logger.error("Could not replay dead letter", e);
+                channel.basicNack(deliveryTag, false, true);
+                return Outcome.failed();
+            }
+        });
+    }
+
+    private boolean isRequested(String queue, String origin) {
+        return queue == null || queue.equals(origin) || queue.equals(queueNames.withoutPrefix(origin));
+    }
+
+    private String deadLetterQueue() {
+        return queueNames.getHIUDeadLetterQueue();
+    }
+
+    private static Optional<String> originOf(AMQP.BasicProperties properties) {
+        return deathsOf(properties).stream()
+                .findFirst()
+                .map(death -> death.get("routing-keys"))
+                .filter(List.class::isInstance)
+                .flatMap(routingKeys -> ((List<?>) routingKeys).stream().findFirst())
+                .map(String::valueOf);
+    }
+
+    private static long deathCount(AMQP.BasicProperties properties) {
+        return deathsOf(properties).stream()
+                .map(death -> death.get("count"))
+                .filter(Number.class::isInstance)
+                .mapToLong(count -> ((Number) count).longValue())
+                .sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> deathsOf(AMQP.BasicProperties properties) {
+        Map<String, Object> headers = properties.getHeaders();
+        if (headers == null || !(headers.get(X_DEATH) instanceof List)) {
+            return List.of();
+        }
+        return (List<Map<String, Object>>) headers.get(X_DEATH);
+    }
+
+    enum Status {
+        REPLAYED,
+        DEFERRED,
+        FAILED,
+        DRAINED
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    static class Outcome {
+        private final Status status;
+        private final String queue;
+
+        static Outcome replayed(String queue) {
+            return new Outcome(Status.REPLAYED, queue);
+        }
+
+        static Outcome deferred() {
+            return new Outcome(Status.DEFERRED, null);
+        }
+
+        static Outcome failed() {
+            return new Outcome(Status.FAILED, null);
+        }
+
+        static Outcome drained() {
+            return new Outcome(Status.DRAINED, null);
+        }
+    }
+}
@@ -58,8 +58,6 @@ public class ConsentRepository {
     private static final String CONSENT_REQUEST_BY_REQUESTER_ID =
             "SELECT consent_request, status, consent_request_id FROM consent_request " +
                     "where consent_request ->> 'requesterId' = $1 ORDER BY date_created DESC";
-    private static final String SELECT_HIP_ID_FOR_A_CONSENT = "SELECT consent_artefact -> 'hip' ->> 'id' as hipId " +
-            "FROM consent_artefact WHERE consent_artefact_id=$1";
     private static final String SELECT_PATIENT_ID_FOR_A_CONSENT = "SELECT consent_artefact -> 'patient' ->> 'id' as patientId " +
             "FROM consent_artefact WHERE consent_artefact_id=$1";
     private static final String SELECT_CONSENT_ID_FROM_REQUEST_ID = "SELECT consent_artefact_id from consent_artefact" +
@@ -78,8 +76,6 @@ public class ConsentRepository {
 
     private static final String SELECT_CONSENT_REQUEST_STATUS = "SELECT status FROM consent_request WHERE " +
             "consent_request_id = $1";
-    private static final String SELECT_CM_ID_FOR_A_CONSENT = "SELECT consent_artefact -> 'consentManager' ->> 'id' as " +
-            "consentManagerId FROM consent_artefact WHERE consent_artefact_id=$1";
 
     private final PgPool readWriteClient;
     private final PgPool readOnlyClient;
@@ -222,24 +218,6 @@ public class ConsentRepository {
                         }));
     }
 
-    public Mono<String> getHipId(String consentId) {
-        return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_HIP_ID_FOR_A_CONSENT)
-                .execute(Tuple.of(consentId),
-                        handler -> {
-                            if (handler.failed()) {
-                                logger.error(handler.cause().getMessage(), handler.cause());
-                                monoSink.error(dbOperationFailure("Failed to get hip Id from consent Id"));
-                                return;
-                            }
-                            var iterator = handler.result().iterator();
-                            if (!iterator.hasNext()) {
-                                monoSink.error(dbOperationFailure("Failed to get hip Id from consent Id"));
-                                return;
-                            }
-                            monoSink.success(iterator.next().getString(0));
-                        }));
-    }
-
     public Mono<String> getPatientId(String consentArtefactId) {
         return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_PATIENT_ID_FOR_A_CONSENT)
                 .execute(Tuple.of(consentArtefactId),
@@ -383,22 +361,4 @@ public class ConsentRepository {
                             monoSink.success(ConsentStatus.valueOf(iterator.next().getString(STATUS)));
                         }));
     }
-
-    public Mono<String> getConsentMangerId(String consentId) {
-        return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_CM_ID_FOR_A_CONSENT)
-                .execute(Tuple.of(consentId),
-                        handler -> {
-                            if (handler.failed()) {
-                                logger.error(handler.cause().getMessage(), handler.cause());
-                                monoSink.error(dbOperationFailure("Failed to get CM Id from consent Id"));
-                                return;
-                            }
-                            var iterator = handler.result().iterator();
-                            if (!iterator.hasNext()) {
-                                monoSink.error(dbOperationFailure("Failed to get CM Id from consent Id"));
-                                return;
-                            }
-                            monoSink.success(iterator.next().getString(0));
-                        }));
-    }
 }
@@ -20,9 +20,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import static in.org.projecteka.hiu.ClientError.dbOperationFailure;
+import static in.org.projecteka.hiu.common.QueryParameters.textArray;
 
 @AllArgsConstructor
 public class PatientConsentRepository {
@@ -36,31 +36,31 @@ public class PatientConsentRepository {
             "patient_consent_request SET consent_request_id=$2, date_modified=$3 WHERE data_request_id=$1";
 
     private static final String SELECT_CONSENT_REQ_IDS = "SELECT consent_request_id, data_request_id, hip_id FROM patient_consent_request " +
-            "WHERE data_request_id IN (%s)";
+            "WHERE data_request_id = ANY($1::text[]::uuid[])";
 
     private static final String DELETE_FROM_PATIENT_CONSENT_REQUEST = "DELETE FROM patient_consent_request " +
             "WHERE patient_id=$1 RETURNING consent_request_id::text";
 
     private static final String DELETE_FROM_CONSENT_REQUEST = "DELETE FROM consent_request " +
-            "WHERE consent_request_id IN (%s) RETURNING consent_request_id";
+            "WHERE consent_request_id = ANY($1::text[]) RETURNING consent_request_id";
     private static final String DELETE_FROM_CONSENT_REQUEST_BY_PATIENT_ID = "delete from consent_request where consent_request->'patient'->>'id' = $1 returning consent_request->'patient'->>'id' as healthId";
 
     private static final String DELETE_FROM_CONSENT_ARTEFACT = "DELETE FROM consent_artefact " +
-            "WHERE consent_request_id IN (%s) RETURNING consent_artefact_id";
+            "WHERE consent_request_id = ANY($1::text[]) RETURNING consent_artefact_id";
 
-    private static final String DELETE_FROM_CONSENT_ARTEFACT_BY_PATIENT_ID = "DELETE FROM consent_artefact where consent_artefact->'patient'->>'id' IN (%s) RETURNING consent_artefact_id";
+    private static final String DELETE_FROM_CONSENT_ARTEFACT_BY_PATIENT_ID = "DELETE FROM consent_artefact where consent_artefact->'patient'->>'id' = ANY($1::text[]) RETURNING consent_artefact_id";
 
     private static final String DELETE_FROM_DATA_FLOW_REQUEST = "DELETE FROM data_flow_request " +
-            "WHERE consent_artefact_id IN (%s) RETURNING transaction_id";
+            "WHERE consent_artefact_id = ANY($1::text[]) RETURNING transaction_id";
 
     private static final String DELETE_FROM_HEALTH_INFORMATION = "DELETE FROM health_information " +
-            "WHERE transaction_id IN (%s) RETURNING transaction_id";
+            "WHERE transaction_id = ANY($1::text[]) RETURNING transaction_id";
 
     private static final String DELETE_FROM_DATA_FLOW_PARTS = "DELETE FROM data_flow_parts " +
-            "WHERE transaction_id IN (%s) RETURNING transaction_id";
+            "WHERE transaction_id = ANY($1::text[]) RETURNING transaction_id";
 
     private static final String DELETE_FROM_DATA_FLOW_REQUEST_KEYS = "DELETE FROM data_flow_request_keys " +
-            "WHERE transaction_id IN (%s)";
+            "WHERE transaction_id = ANY($1::text[])";
 
     private static final String SELECT_LATEST_RESOURCE_BY_CC_FOR_PATIENT_IN_HIP =
                 "SELECT hi.care_context_reference as care_context_reference, " +
@@ -81,7 +81,7 @@ public class PatientConsentRepository {
                     "WHERE ROW(pcr.hip_id, pcr.date_created) IN (SELECT " +
                     "hip_id, max(date_created) " +
                     "FROM patient_consent_request " +
-                    "WHERE patient_id=$1 and hip_id in (%s) " +
+                    "WHERE patient_id=$1 and hip_id = ANY($2::text[]) " +
                     "GROUP BY hip_id)";
 
     private final PgPool readWriteClient;
@@ -135,10 +135,9 @@ public class PatientConsentRepository {
         if (consentRequestIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_CONSENT_REQUEST, joinByComma(consentRequestIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_CONSENT_REQUEST)
+                        .execute(Tuple.of(textArray(consentRequestIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from consent request"));
@@ -156,10 +155,9 @@ public class PatientConsentRepository {
         if (consentArtefactIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_CONSENT_ARTEFACT, joinByComma(consentArtefactIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_CONSENT_ARTEFACT)
+                        .execute(Tuple.of(textArray(consentArtefactIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from consent artefact"));
@@ -177,10 +175,9 @@ public class PatientConsentRepository {
         if (consentArtefactIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_DATA_FLOW_REQUEST, joinByComma(consentArtefactIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_DATA_FLOW_REQUEST)
+                        .execute(Tuple.of(textArray(consentArtefactIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from data flow request"));
@@ -215,10 +212,9 @@ public class PatientConsentRepository {
         if (healthId.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_CONSENT_ARTEFACT_BY_PATIENT_ID, joinByComma(healthId));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_CONSENT_ARTEFACT_BY_PATIENT_ID)
+                        .execute(Tuple.of(textArray(healthId)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete patient consent artefact"));
@@ -234,10 +230,9 @@ public class PatientConsentRepository {
         if (transactionIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_HEALTH_INFORMATION, joinByComma(transactionIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_HEALTH_INFORMATION)
+                        .execute(Tuple.of(textArray(transactionIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from Health Information"));
@@ -255,10 +250,9 @@ public class PatientConsentRepository {
         if (transactionIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_DATA_FLOW_REQUEST_KEYS, joinByComma(transactionIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_DATA_FLOW_REQUEST_KEYS)
+                        .execute(Tuple.of(textArray(transactionIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from data flow parts"));
@@ -274,10 +268,9 @@ public class PatientConsentRepository {
         if (transactionIds.isEmpty()) {
             return Mono.empty();
         }
-        var generatedQuery = String.format(DELETE_FROM_DATA_FLOW_PARTS, joinByComma(transactionIds));
         return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(generatedQuery)
-                        .execute(handler -> {
+                readWriteClient.preparedQuery(DELETE_FROM_DATA_FLOW_PARTS)
+                        .execute(Tuple.of(textArray(transactionIds)), handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
                                 monoSink.error(new Exception("Failed to delete from data flow request keys"));
@@ -292,12 +285,11 @@ public class PatientConsentRepository {
     }
 
     public Flux<PatientDataRequestMapping> fetchConsentRequestIds(List<String> dataRequestIds) {
-        var generatedQuery = String.format(SELECT_CONSENT_REQ_IDS, joinByComma(dataRequestIds));
         if (dataRequestIds.isEmpty()) {
             return Flux.empty();
         }
-        return Flux.create(fluxSink -> readOnlyClient.preparedQuery(generatedQuery)
-                .execute(handler -> {
+        return Flux.create(fluxSink -> readOnlyClient.preparedQuery(SELECT_CONSENT_REQ_IDS)
+                .execute(Tuple.of(textArray(dataRequestIds)), handler -> {
                     if (handler.failed()) {
                         logger.error(handler.cause().getMessage(), handler.cause());
                         fluxSink.error(dbOperationFailure("Failed to fetch consent request ids"));
@@ -314,14 +306,6 @@ public class PatientConsentRepository {
                 }));
     }
 
-    private String joinByComma(List<String> list) {
-        return String.join(", ", list.stream().map(e -> String.format("'%s'", e)).collect(Collectors.toList()));
-    }
-
-    private String joinByComma(Set<String> list) {
-        return list.stream().map(e -> String.format("'%s'", e)).collect(Collectors.joining(", "));
-    }
-
     public Mono<List<Map<String, Object>>> getLatestResourceDateByHipCareContext(String patientId, String hipId) {
         return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_LATEST_RESOURCE_BY_CC_FOR_PATIENT_IN_HIP)
                 .execute(Tuple.of(patientId, hipId),
@@ -342,9 +326,8 @@ public class PatientConsentRepository {
     }
 
     public Mono<List<PatientDataRequestDetail>> getLatestDataRequestsForPatient(String patientId, List<String> hipIds) {
-        var generatedQuery = String.format(SELECT_LATEST_DATA_REQUEST_FOR_PATIENT_BY_HIPS, joinByComma(hipIds));
-        return Mono.create(monoSink -> readOnlyClient.preparedQuery(generatedQuery)
-                .execute(Tuple.of(patientId),
+        return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_LATEST_DATA_REQUEST_FOR_PATIENT_BY_HIPS)
+                .execute(Tuple.of(patientId, textArray(hipIds)),
                         handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
@@ -0,0 +1,19 @@
+package in.org.projecteka.hiu.dataflow;
+
+/**
+ * AES-GCM decryption of the entries sent by HIPs. Implementations must be safe to share between threads.
+ */
+public interface AesGcmCipher {
+    int TAG_LENGTH_BITS = 128;
+
+    /**
+     * Decrypts and authenticates the cipher text (with the tag appended) into output, starting at offset 0.
+     *
+     * @param encrypted - cipher text followed by the 16 byte authentication tag
+     * @param key - AES key
+     * @param iv - 12 byte nonce
+     * @param output - buffer of at least encrypted.length - 16 bytes
+     * @return number of plain text bytes written to output
+     */
+    int decrypt(byte[] encrypted, byte[] key, byte[] iv, byte[] output) throws Exception;
+}
@@ -0,0 +1,31 @@
+package in.org.projecteka.hiu.dataflow;
+
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.io.CipherInputStream;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import java.io.InputStream;
+
+public class BouncyCastleAesGcmCipher implements AesGcmCipher {
+    @Override
+    public int decrypt(byte[] encrypted, byte[] key, byte[] iv, byte[] output) throws Exception {
+        GCMBlockCipher cipher = new GCMBlockCipher(new AESEngine());
+        AEADParameters parameters = new AEADParameters(new KeyParameter(key), TAG_LENGTH_BITS, iv, null);
+        cipher.init(false, parameters);
+        int retLen = cipher.processBytes(encrypted, 0, encrypted.length, output, 0);
+        return retLen + cipher.doFinal(output, retLen);
+    }
+
+    /**
+     * Unlike the JDK, which holds back all plain text until the tag is verified, BouncyCastle releases plain
+     * text as it decrypts. The tag is checked when the stream reaches its end, reading then fails with an
+     * IOException if the content was tampered with, so callers must not use what they read before that.
+     */
+    public InputStream decryptingStream(InputStream encrypted, byte[] key, byte[] iv) {
+        GCMBlockCipher cipher = new GCMBlockCipher(new AESEngine());
+        cipher.init(false, new AEADParameters(new KeyParameter(key), TAG_LENGTH_BITS, iv, null));
+        return new CipherInputStream(encrypted, cipher);
+    }
+}
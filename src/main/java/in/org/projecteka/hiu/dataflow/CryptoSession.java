@@ -0,0 +1,15 @@
+package in.org.projecteka.hiu.dataflow;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Key and IV agreed with a HIP for one data transfer, everything but the AES-GCM pass itself is done
+ * while deriving it.
+ */
+@AllArgsConstructor
+@Getter
+class CryptoSession {
+    private final byte[] aesKey;
+    private final byte[] iv;
+}
@@ -24,17 +24,23 @@ public class DataAvailabilityPublisher {
     private final DestinationsConfig destinationsConfig;
     private final RabbitQueueNames queueNames;
 
-    @SneakyThrows
     public Mono<Void> broadcastDataAvailability(Map<String, String> contentRef) {
-        DestinationsConfig.DestinationInfo destinationInfo =
-                destinationsConfig.getQueues().get(queueNames.getDataFlowProcessQueue());
+        return broadcastDataAvailability(contentRef, DataPartLane.REGULAR);
+    }
+
+    @SneakyThrows
+    public Mono<Void> broadcastDataAvailability(Map<String, String> contentRef, DataPartLane lane) {
+        String queueName = lane == DataPartLane.LARGE
+                           ? queueNames.getDataFlowProcessLargeQueue()
+                           : queueNames.getDataFlowProcessQueue();
+        DestinationsConfig.DestinationInfo destinationInfo = destinationsConfig.getQueues().get(queueName);
         TraceableMessage traceableMessage = TraceableMessage.builder()
                 .correlationId(MDC.get(CORRELATION_ID))
                 .message(contentRef)
                 .build();
 
         if (destinationInfo == null) {
-            logger.info(String.format("Queue %s not found",queueNames.getDataFlowProcessQueue()));
+            logger.info(String.format("Queue %s not found", queueName));
             throw ClientError.queueNotFound();
         }
 
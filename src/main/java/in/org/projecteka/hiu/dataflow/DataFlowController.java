@@ -1,31 +1,46 @@
 package in.org.projecteka.hiu.dataflow;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import in.org.projecteka.hiu.ClientError;
 import in.org.projecteka.hiu.common.Constants;
 import in.org.projecteka.hiu.dataflow.model.DataFlowRequestResult;
 import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
 import lombok.AllArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 
 @RestController
 @AllArgsConstructor
 public class DataFlowController {
     private final DataFlowService dataFlowService;
+    private final DataFlowServiceProperties serviceProperties;
+    private final ObjectMapper objectMapper;
 
     @ResponseStatus(HttpStatus.ACCEPTED)
     @PostMapping(Constants.PATH_DATA_TRANSFER)
-    public Mono<Void> dataNotification(@RequestBody DataNotificationRequest dataNotificationRequest) {
-        if (dataNotificationRequest.getPageCount() > 1){
-            return Mono.error(ClientError.paginationNotSupported());
+    public Mono<Void> dataNotification(@RequestBody Flux<DataBuffer> notification) {
+        if (serviceProperties.isStreamingIngest()) {
+            return dataFlowService.handleNotification(notification);
         }
-        return dataFlowService.handleNotification(dataNotificationRequest);
+        return toDataNotificationRequest(notification)
+                .flatMap(dataNotificationRequest -> {
+                    if (dataNotificationRequest.getPageCount() > 1) {
+                        return Mono.error(ClientError.paginationNotSupported());
+                    }
+                    return dataFlowService.handleNotification(dataNotificationRequest);
+                });
     }
 
     @ResponseStatus(HttpStatus.ACCEPTED)
@@ -33,4 +48,19 @@ public class DataFlowController {
     public Mono<Void> onInitDataFlowRequest(@Valid @RequestBody DataFlowRequestResult dataFlowRequestResult) {
         return dataFlowService.updateDataFlowRequest(dataFlowRequestResult);
     }
+
+    /**
+     * Binds the body the way @RequestBody would, a missing or malformed body is a bad request.
+     */
+    private Mono<DataNotificationRequest> toDataNotificationRequest(Flux<DataBuffer> notification) {
+        return DataBufferUtils.join(notification)
+                .map(dataBuffer -> {
+                    try (InputStream inputStream = dataBuffer.asInputStream(true)) {
+                        return objectMapper.readValue(inputStream, DataNotificationRequest.class);
+                    } catch (IOException e) {
+                        throw new ServerWebInputException("Failed to read HTTP message", null, e);
+                    }
+                })
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("No request body")));
+    }
 }
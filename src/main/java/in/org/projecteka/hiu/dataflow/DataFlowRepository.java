@@ -6,6 +6,7 @@ import in.org.projecteka.hiu.dataflow.model.DataPartDetail;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
 import in.org.projecteka.hiu.dataflow.model.RequestStatus;
 import in.org.projecteka.hiu.dataflow.model.PatientDataRequestDetail;
+import in.org.projecteka.hiu.dataflow.model.TransactionMetadata;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.Tuple;
@@ -20,10 +21,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Collection;
-import java.util.stream.Collectors;
 
 import static in.org.projecteka.hiu.ClientError.dbOperationFailure;
+import static in.org.projecteka.hiu.common.QueryParameters.textArray;
 import static in.org.projecteka.hiu.common.Serializer.from;
 import static in.org.projecteka.hiu.common.Serializer.to;
 import static in.org.projecteka.hiu.dataflow.model.RequestStatus.REQUESTED;
@@ -40,8 +40,6 @@ public class DataFlowRepository {
     private static final String INSERT_TO_DATA_FLOW_REQUEST_KEYS = "INSERT INTO data_flow_request_keys " +
             "(transaction_id, " +
             "key_pairs) VALUES ($1, $2)";
-    private static final String GET_KEY_FOR_ID = "SELECT key_pairs FROM data_flow_request_keys WHERE transaction_id =" +
-            " $1";
     private static final String SELECT_TRANSACTION_IDS_FROM_DATA_FLOW_REQUEST = "SELECT transaction_id FROM " +
             "data_flow_request WHERE consent_artefact_id = $1 and status = $2";
     private static final String INSERT_HEALTH_DATA_AVAILABILITY = "INSERT INTO data_flow_parts (transaction_id, " +
@@ -53,8 +51,14 @@ public class DataFlowRepository {
                     "WHERE dfr.transaction_id=$1";
     private static final String UPDATE_HEALTH_DATA_AVAILABILITY = "UPDATE data_flow_parts SET status = $1, errors = " +
             "$2, latest_res_date = $3 WHERE transaction_id = $4 AND part_number = $5";
-    private static final String SELECT_CONSENT_ID = "SELECT consent_artefact_id FROM data_flow_request WHERE " +
-            "transaction_id = $1";
+    private static final String SELECT_TRANSACTION_METADATA = "SELECT dfr.consent_artefact_id, " +
+            "ca.consent_artefact -> 'hip' ->> 'id' as hip_id, " +
+            "ca.consent_artefact -> 'consentManager' ->> 'id' as consent_manager_id, " +
+            "dfrk.key_pairs " +
+            "FROM data_flow_request dfr " +
+            "INNER JOIN consent_artefact ca ON dfr.consent_artefact_id = ca.consent_artefact_id " +
+            "LEFT JOIN data_flow_request_keys dfrk ON dfr.transaction_id = dfrk.transaction_id " +
+            "WHERE dfr.transaction_id = $1";
 
     private static final String FETCH_DATA_PART_DETAILS = "select " +
             "ca.consent_artefact -> 'hip' ->> 'id' as hipId, " +
@@ -63,7 +67,7 @@ public class DataFlowRepository {
             "from data_flow_parts dfp " +
             "join data_flow_request dfr on dfp.transaction_id = dfr.transaction_id " +
             "join consent_artefact ca on dfr.consent_artefact_id = ca.consent_artefact_id " +
-            "where ca.consent_request_id in (%s)";
+            "where ca.consent_request_id = ANY($1::text[])";
 
     private static final String FETCH_PATIENT_DATA_REQUEST_DETAILS = "SELECT " +
             "pcr.hip_id, pcr.data_request_id::text, pcr.patient_id, " +
@@ -74,7 +78,7 @@ public class DataFlowRepository {
             "LEFT JOIN consent_artefact ca ON pcr.consent_request_id = ca.consent_request_id::uuid " +
             "LEFT JOIN data_flow_request dfr ON dfr.consent_artefact_id = ca.consent_artefact_id " +
             "LEFT JOIN data_flow_parts dfp ON dfr.transaction_id = dfp.transaction_id " +
-            "WHERE pcr.data_request_id IN (%s)";
+            "WHERE pcr.data_request_id = ANY($1::text[]::uuid[])";
 
     private static final Logger logger = LogManager.getLogger(DataFlowRepository.class);
     private final PgPool readWriteClient;
@@ -134,27 +138,6 @@ public class DataFlowRepository {
                         }));
     }
 
-    public Mono<DataFlowRequestKeyMaterial> getKeys(String transactionId) {
-        return Mono.create(monoSink -> readOnlyClient.preparedQuery(GET_KEY_FOR_ID)
-                .execute(Tuple.of(transactionId),
-                        handler -> {
-                            if (handler.failed()) {
-                                logger.error(handler.cause().getMessage(), handler.cause());
-                                monoSink.error(dbOperationFailure("Failed to fetch encryption keys"));
-                                return;
-                            }
-                            var iterator = handler.result().iterator();
-                            if (!iterator.hasNext()) {
-                                logger.error(format("Could not found encryption keys for %s", transactionId));
-                                monoSink.error(dbOperationFailure("Failed to fetch encryption keys"));
-                                return;
-                            }
-                            var row = iterator.next();
-                            var keyPairsJson = row.getValue("key_pairs").toString();
-                            monoSink.success(to(keyPairsJson, DataFlowRequestKeyMaterial.class));
-                        }));
-    }
-
     public Mono<String> getTransactionId(String consentArtefactId) {
         return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_TRANSACTION_IDS_FROM_DATA_FLOW_REQUEST)
                 .execute(Tuple.of(consentArtefactId, REQUESTED.toString()),
@@ -175,26 +158,38 @@ public class DataFlowRepository {
                         }));
     }
 
-    public Mono<String> getConsentId(String transactionId) {
-        return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_CONSENT_ID)
+    /**
+     * Everything processing a data part needs to know about its transaction, in one round trip. Key material is
+     * left empty when the keys of the transaction are not found.
+     */
+    public Mono<TransactionMetadata> getTransactionMetadata(String transactionId) {
+        return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_TRANSACTION_METADATA)
                 .execute(Tuple.of(transactionId),
                         handler -> {
                             if (handler.failed()) {
                                 logger.error(handler.cause().getMessage(), handler.cause());
-                                monoSink.error(dbOperationFailure("Failed to get consent Id from transaction Id"));
+                                monoSink.error(dbOperationFailure("Failed to fetch metadata of transaction"));
                                 return;
                             }
                             var iterator = handler.result().iterator();
                             if (!iterator.hasNext()) {
-                                logger.error(format("Could not find consent artefact id for %s", transactionId));
-                                monoSink.error(dbOperationFailure("Failed to get consent Id from transaction Id"));
+                                logger.error(format("Could not find consent artefact for %s", transactionId));
+                                monoSink.error(dbOperationFailure("Failed to fetch metadata of transaction"));
                                 return;
                             }
-                            monoSink.success(iterator.next().getString(0));
+                            var row = iterator.next();
+                            var keyPairs = row.getValue("key_pairs");
+                            monoSink.success(TransactionMetadata.builder()
+                                    .consentId(row.getString("consent_artefact_id"))
+                                    .hipId(row.getString("hip_id"))
+                                    .consentManagerId(row.getString("consent_manager_id"))
+                                    .keyMaterial(keyPairs != null
+                                                 ? to(keyPairs.toString(), DataFlowRequestKeyMaterial.class)
+                                                 : null)
+                                    .build());
                         }));
     }
 
-
     public Mono<Map<String, Object>> retrieveDataFlowRequest(String transactionId) {
         return Mono.create(monoSink -> readOnlyClient.preparedQuery(SELECT_DATA_FLOW_REQUEST_FOR_TRANSACTION)
                 .execute(Tuple.of(transactionId),
@@ -250,12 +245,11 @@ public class DataFlowRepository {
     }
 
     public Flux<DataPartDetail> fetchDataPartDetails(List<String> consentRequestIds) {
-        var generatedQuery = String.format(FETCH_DATA_PART_DETAILS, joinByComma(consentRequestIds));
         if (consentRequestIds.isEmpty()) {
             return Flux.empty();
         }
-        return Flux.create(fluxSink -> readWriteClient.preparedQuery(generatedQuery)
-                .execute(handler -> {
+        return Flux.create(fluxSink -> readWriteClient.preparedQuery(FETCH_DATA_PART_DETAILS)
+                .execute(Tuple.of(textArray(consentRequestIds)), handler -> {
                     if (handler.failed()) {
                         logger.error(handler.cause().getMessage(), handler.cause());
                         fluxSink.error(dbOperationFailure("Failed to fetch data part details"));
@@ -276,12 +270,11 @@ public class DataFlowRepository {
     }
 
     public Flux<PatientDataRequestDetail> fetchPatientDataRequestDetails(Set<String> dataRequestIds) {
-        var generatedQuery = String.format(FETCH_PATIENT_DATA_REQUEST_DETAILS, joinByComma(dataRequestIds));
         if (dataRequestIds.isEmpty()) {
             return Flux.empty();
         }
-        return Flux.create(fluxSink -> readWriteClient.preparedQuery(generatedQuery)
-                .execute(handler -> {
+        return Flux.create(fluxSink -> readWriteClient.preparedQuery(FETCH_PATIENT_DATA_REQUEST_DETAILS)
+                .execute(Tuple.of(textArray(dataRequestIds)), handler -> {
                     if (handler.failed()) {
                         logger.error(handler.cause().getMessage(), handler.cause());
                         fluxSink.error(dbOperationFailure("Failed to fetch patient data request details"));
@@ -303,9 +296,4 @@ public class DataFlowRepository {
                     fluxSink.complete();
                 }));
     }
-
-
-    private String joinByComma(Collection<String> list) {
-        return list.stream().map(e -> String.format("'%s'", e)).collect(Collectors.joining(", "));
-    }
 }
@@ -1,5 +1,6 @@
 package in.org.projecteka.hiu.dataflow;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import in.org.projecteka.hiu.ClientError;
 import in.org.projecteka.hiu.common.cache.CacheAdapter;
 import in.org.projecteka.hiu.consent.TokenUtils;
@@ -8,10 +9,14 @@ import in.org.projecteka.hiu.dataflow.model.DataFlowRequestResult;
 import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
 import in.org.projecteka.hiu.dataflow.model.Entry;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
+import in.org.projecteka.hiu.dataflow.model.SpooledNotification;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -19,6 +24,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static reactor.core.publisher.Mono.defer;
@@ -28,6 +34,7 @@ public class DataFlowService {
     public static final String TRANSACTION_ID = "transactionId";
     public static final String PATH_TO_FILE = "pathToFile";
     private static final String DATA_PART_NUMBER = "partNumber";
+    private static final String INCOMING_DIRECTORY = "incoming";
     private final DataFlowRepository dataFlowRepository;
     private final DataAvailabilityPublisher dataAvailabilityPublisher;
     private final DataFlowServiceProperties dataFlowServiceProperties;
@@ -53,6 +60,58 @@ public class DataFlowService {
                 .flatMap(this::notifyDataProcessor);
     }
 
+    /**
+     * Streaming counterpart of {@link #handleNotification(DataNotificationRequest)}. The request body is written to
+     * a spool file as it arrives, and only the header fields are read back from it, so the heap used per request
+     * stays the same irrespective of the payload size.
+     */
+    public Mono<Void> handleNotification(Flux<DataBuffer> notification) {
+        Path spooledFile = Paths.get(dataFlowServiceProperties.getLocalStoragePath(),
+                INCOMING_DIRECTORY,
+                String.format("%s.json", UUID.randomUUID()));
+        int dataFlowPartNo = 1;
+        return localDataStore.writeToFile(notification, spooledFile)
+                .then(defer(() -> localDataStore.readNotification(spooledFile)))
+                .onErrorMap(JsonProcessingException.class,
+                        e -> ClientError.invalidEntryError(String.format("Invalid data notification: %s",
+                                e.getOriginalMessage())))
+                .flatMap(this::validateSpooledNotification)
+                .flatMap(spooledNotification -> {
+                    logger.info("[DataFlowService] Received data transfer for transactionId={}",
+                            spooledNotification.getTransactionId());
+                    return validateAndRetrieveRequestedConsent(spooledNotification.getTransactionId())
+                            .flatMap(consentRequestId -> moveSpooledDataTransferred(spooledFile,
+                                    spooledNotification.getTransactionId(), consentRequestId, dataFlowPartNo));
+                })
+                .flatMap(contentReference -> saveDataAvailability(contentReference, dataFlowPartNo))
+                .flatMap(this::notifyDataProcessor)
+                .doFinally(signal -> {
+                    // moved to the part file location on success, anything else leaves it behind in incoming
+                    if (signal != SignalType.ON_COMPLETE) {
+                        localDataStore.deleteFile(spooledFile);
+                    }
+                });
+    }
+
+    private Mono<SpooledNotification> validateSpooledNotification(SpooledNotification spooledNotification) {
+        if (spooledNotification.getPageCount() > 1) {
+            return Mono.error(ClientError.paginationNotSupported());
+        }
+        if (spooledNotification.hasInvalidEntries()) {
+            return Mono.error(ClientError.invalidEntryError("Entry must either have content or provide a link."));
+        }
+        return Mono.just(spooledNotification);
+    }
+
+    private Mono<Map<String, String>> moveSpooledDataTransferred(Path spooledFile,
+                                                                 String transactionId,
+                                                                 String consentRequestId,
+                                                                 int dataFlowPartNo) {
+        Path pathToFile = pathToDataPart(consentRequestId, transactionId, dataFlowPartNo);
+        return localDataStore.moveFile(spooledFile, pathToFile)
+                .thenReturn(createContentAvailabilityRef(transactionId, pathToFile));
+    }
+
     private Mono<Map<String, String>> saveDataAvailability(Map<String, String> contentReference, int partNumber) {
         contentReference.put(DATA_PART_NUMBER, String.valueOf(partNumber));
         return dataFlowRepository.insertDataPartAvailability(contentReference.get(TRANSACTION_ID),
@@ -62,7 +121,21 @@ public class DataFlowService {
     }
 
     private Mono<Void> notifyDataProcessor(Map<String, String> contentRef) {
-        return dataAvailabilityPublisher.broadcastDataAvailability(contentRef);
+        return laneFor(Paths.get(contentRef.get(PATH_TO_FILE)))
+                .flatMap(lane -> dataAvailabilityPublisher.broadcastDataAvailability(contentRef, lane));
+    }
+
+    private Mono<DataPartLane> laneFor(Path pathToFile) {
+        long threshold = dataFlowServiceProperties.getLargeDataPartThreshold();
+        if (threshold <= 0) {
+            return Mono.just(DataPartLane.REGULAR);
+        }
+        return localDataStore.sizeOf(pathToFile)
+                .map(size -> size >= threshold ? DataPartLane.LARGE : DataPartLane.REGULAR)
+                .onErrorResume(e -> {
+                    logger.warn("Could not find size of {}, processing it in the regular lane", pathToFile);
+                    return Mono.just(DataPartLane.REGULAR);
+                });
     }
 
     public Mono<Void> updateDataFlowRequest(DataFlowRequestResult dataFlowRequestResult) {
@@ -93,18 +166,21 @@ public class DataFlowService {
 
     private Mono<Map<String, String>> serializeDataTransferred(DataNotificationRequest dataNotificationRequest,
                                                                String consentRequestId, int dataFlowPartNo) {
-        Path pathToFile = Paths.get(dataFlowServiceProperties.getLocalStoragePath(),
-                getLocalDirectoryName(consentRequestId),
-                getLocalDirectoryName(dataNotificationRequest.getTransactionId()),
-                localFileNameToSave(dataNotificationRequest.getTransactionId(), dataFlowPartNo));
+        Path pathToFile = pathToDataPart(consentRequestId, dataNotificationRequest.getTransactionId(), dataFlowPartNo);
         return localDataStore.serializeDataToFile(dataNotificationRequest, pathToFile)
-                .thenReturn(createContentAvailabilityRef(dataNotificationRequest, pathToFile));
+                .thenReturn(createContentAvailabilityRef(dataNotificationRequest.getTransactionId(), pathToFile));
+    }
+
+    private Path pathToDataPart(String consentRequestId, String transactionId, int dataFlowPartNo) {
+        return Paths.get(dataFlowServiceProperties.getLocalStoragePath(),
+                getLocalDirectoryName(consentRequestId),
+                getLocalDirectoryName(transactionId),
+                localFileNameToSave(transactionId, dataFlowPartNo));
     }
 
-    private Map<String, String> createContentAvailabilityRef(DataNotificationRequest dataNotificationRequest,
-                                                             Path pathToFile) {
+    private Map<String, String> createContentAvailabilityRef(String transactionId, Path pathToFile) {
         Map<String, String> contentRef = new HashMap<>();
-        contentRef.put(TRANSACTION_ID, dataNotificationRequest.getTransactionId());
+        contentRef.put(TRANSACTION_ID, transactionId);
         contentRef.put(PATH_TO_FILE, pathToFile.toString());
         return contentRef;
     }
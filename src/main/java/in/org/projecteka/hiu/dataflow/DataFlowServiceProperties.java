@@ -20,4 +20,7 @@ public class DataFlowServiceProperties {
     private String localStoragePath;
     private int dataFlowRequestWaitTime;
     private int dataPartWaitTime;
+    private boolean streamingIngest;
+    //Parts of at least this many bytes are processed in the large part lane, 0 keeps every part in one lane
+    private long largeDataPartThreshold;
 }
@@ -0,0 +1,10 @@
+package in.org.projecteka.hiu.dataflow;
+
+/**
+ * Queue a data part is processed from. Large parts have a lane and consumers of their own, so a big transfer
+ * doesn't hold up the small ones queued behind it.
+ */
+public enum DataPartLane {
+    REGULAR,
+    LARGE
+}
@@ -1,18 +1,16 @@
 package in.org.projecteka.hiu.dataflow;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
 import in.org.projecteka.hiu.dataflow.model.KeyMaterial;
+import lombok.Value;
 import org.bouncycastle.asn1.x9.X9ECParameters;
-import org.bouncycastle.crypto.DataLengthException;
-import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.ec.CustomNamedCurves;
-import org.bouncycastle.crypto.engines.AESEngine;
 import org.bouncycastle.crypto.generators.HKDFBytesGenerator;
-import org.bouncycastle.crypto.modes.GCMBlockCipher;
-import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.HKDFParameters;
-import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.jce.interfaces.ECPrivateKey;
 import org.bouncycastle.jce.interfaces.ECPublicKey;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -22,6 +20,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.KeyAgreement;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.ref.SoftReference;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
@@ -35,7 +39,9 @@ import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.Security;
 import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
 
 public class Decryptor {
     public static final String ALGORITHM = "ECDH";
@@ -44,9 +50,35 @@ public class Decryptor {
     public static final String EH_PUBLIC_KEY_PARAMETER = "Ephemeral public key";
 
     private static final Logger logger = LoggerFactory.getLogger(Decryptor.class);
+    private static final long DEFAULT_SESSION_CACHE_SIZE = 1000;
+    private static final Duration DEFAULT_SESSION_CACHE_EXPIRY = Duration.ofMinutes(30);
+    private static final int TAG_LENGTH_BYTES = AesGcmCipher.TAG_LENGTH_BITS / 8;
+    //Plain text buffers up to this size are kept per thread and reused, larger entries get their own
+    private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+    private final Cache<SessionKey, CryptoSession> sessions;
+    private final AesGcmCipher cipher;
+    private final BouncyCastleAesGcmCipher streamingCipher = new BouncyCastleAesGcmCipher();
+    // softly held, an idle thread doesn't pin its buffer when memory runs short
+    private final ThreadLocal<SoftReference<byte[]>> plainTextBuffers = new ThreadLocal<>();
 
     public Decryptor(){
-        Security.addProvider(new BouncyCastleProvider());
+        this(new JceAesGcmCipher(), DEFAULT_SESSION_CACHE_SIZE, DEFAULT_SESSION_CACHE_EXPIRY);
+    }
+
+    /**
+     * Every entry of a data transfer is encrypted with the same key material, the ECDH agreement and HKDF
+     * derivation are done once per (sender key, nonce, our key) and kept for the given expiry after last use.
+     */
+    public Decryptor(AesGcmCipher cipher, long sessionCacheSize, Duration sessionCacheExpiry) {
+        this.cipher = cipher;
+        if (Security.getProvider(PROVIDER) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        this.sessions = CacheBuilder.newBuilder()
+                .maximumSize(sessionCacheSize)
+                .expireAfterAccess(sessionCacheExpiry)
+                .build();
     }
 
     public String generateRandomKey() {
@@ -82,14 +114,63 @@ public class Decryptor {
     public String decrypt(KeyMaterial receivedKeyMaterial,
                           DataFlowRequestKeyMaterial savedKeyMaterial,
                           String encryptedMessage) throws Exception {
+        CryptoSession session = sessionFor(receivedKeyMaterial, savedKeyMaterial);
+        return decrypt(getBytesForBase64String(encryptedMessage), session);
+    }
+
+    /**
+     * Decrypts into a plain text buffer reused by the calling thread and hands it to the reader, without building
+     * a String of it. The plain text is only valid until the reader returns, it must not decrypt again meanwhile.
+     */
+    public <T> T decrypt(KeyMaterial receivedKeyMaterial,
+                         DataFlowRequestKeyMaterial savedKeyMaterial,
+                         String encryptedMessage,
+                         PlainTextReader<T> reader) throws Exception {
+        CryptoSession session = sessionFor(receivedKeyMaterial, savedKeyMaterial);
+        byte[] encryptedBytes = getBytesForBase64String(encryptedMessage);
+        byte[] plainBytes = plainTextBuffer(Math.max(encryptedBytes.length - TAG_LENGTH_BYTES, 0));
+        int length = cipher.decrypt(encryptedBytes, session.getAesKey(), session.getIv(), plainBytes);
+        return reader.read(new InputStreamReader(new ByteArrayInputStream(plainBytes, 0, length),
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decrypts while the content is read, without materialising the decoded cipher text or the plain text.
+     * Reading fails with an IOException at the end of the content if it does not authenticate.
+     */
+    public Reader decryptingReader(KeyMaterial receivedKeyMaterial,
+                                   DataFlowRequestKeyMaterial savedKeyMaterial,
+                                   String encryptedMessage) throws Exception {
+        CryptoSession session = sessionFor(receivedKeyMaterial, savedKeyMaterial);
+        InputStream encrypted = java.util.Base64.getMimeDecoder().wrap(new Base64CharsInputStream(encryptedMessage));
+        InputStream plainText = streamingCipher.decryptingStream(encrypted, session.getAesKey(), session.getIv());
+        return new BufferedReader(new InputStreamReader(plainText, StandardCharsets.UTF_8));
+    }
+
+    CryptoSession sessionFor(KeyMaterial receivedKeyMaterial,
+                             DataFlowRequestKeyMaterial savedKeyMaterial) throws Exception {
         var senderPublicKey = receivedKeyMaterial.getDhPublicKey().getKeyValue();
         var randomKeySender = receivedKeyMaterial.getNonce();
+        var sessionKey = new SessionKey(senderPublicKey,
+                randomKeySender,
+                savedKeyMaterial.getPrivateKey(),
+                savedKeyMaterial.getRandomKey());
+        try {
+            return sessions.get(sessionKey, () -> newSession(senderPublicKey, randomKeySender, savedKeyMaterial));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private CryptoSession newSession(String senderPublicKey,
+                                     String randomKeySender,
+                                     DataFlowRequestKeyMaterial savedKeyMaterial) throws Exception {
         String sharedKey = doECDH(getBytesForBase64String(savedKeyMaterial.getPrivateKey())
                 , getBytesForBase64String(senderPublicKey));
         byte[] xorOfRandoms = xorOfRandom(randomKeySender, savedKeyMaterial.getRandomKey());
         byte[] iv = Arrays.copyOfRange(xorOfRandoms, xorOfRandoms.length - 12, xorOfRandoms.length);
         var aesKey = generateAesKey(xorOfRandoms, sharedKey);
-        return decrypt(getBytesForBase64String(encryptedMessage), aesKey,iv);
+        return new CryptoSession(aesKey, iv);
     }
 
     private PrivateKey loadPrivateKey (byte [] data) throws Exception
@@ -150,24 +231,74 @@ public class Decryptor {
         return org.bouncycastle.util.encoders.Base64.decode(value);
     }
 
-    private static String decrypt(byte[] encryptedBytes, byte[] key, byte[] iv) {
+    @FunctionalInterface
+    public interface PlainTextReader<T> {
+        T read(Reader plainText) throws Exception;
+    }
+
+    @Value
+    private static class SessionKey {
+        String senderPublicKey;
+        String senderNonce;
+        String privateKey;
+        String randomKey;
+    }
+
+    /**
+     * Reads the (ASCII) base64 characters of the content directly, instead of copying them to a byte array.
+     */
+    private static class Base64CharsInputStream extends InputStream {
+        private final String value;
+        private int position;
+
+        Base64CharsInputStream(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public int read() {
+            return position < value.length() ? value.charAt(position++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= value.length()) {
+                return -1;
+            }
+            int count = Math.min(length, value.length() - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) value.charAt(position++);
+            }
+            return count;
+        }
+    }
+
+    private String decrypt(byte[] encryptedBytes, CryptoSession session) {
         String decryptedData = "";
         try {
-            GCMBlockCipher cipher = new GCMBlockCipher(new AESEngine());
-            AEADParameters parameters =
-                    new AEADParameters(new KeyParameter(key), 128, iv, null);
-
-            cipher.init(false, parameters);
-            byte[] plainBytes = new byte[cipher.getOutputSize(encryptedBytes.length)];
-            int retLen = cipher.processBytes
-                    (encryptedBytes, 0, encryptedBytes.length, plainBytes, 0);
-            cipher.doFinal(plainBytes, retLen);
-
-            decryptedData = new String(plainBytes, StandardCharsets.UTF_8);
-        } catch (IllegalArgumentException | IllegalStateException |
-                DataLengthException | InvalidCipherTextException ex) {
+            // short lived, entries above the streaming threshold are decrypted through decryptingReader instead
+            byte[] plainBytes = new byte[Math.max(encryptedBytes.length - TAG_LENGTH_BYTES, 0)];
+            int length = cipher.decrypt(encryptedBytes, session.getAesKey(), session.getIv(), plainBytes);
+            decryptedData = new String(plainBytes, 0, length, StandardCharsets.UTF_8);
+        } catch (Exception ex) {
             logger.error(ex.getMessage(), ex);
         }
         return decryptedData;
     }
+
+    private byte[] plainTextBuffer(int size) {
+        if (size > MAX_REUSED_BUFFER_SIZE) {
+            return new byte[size];
+        }
+        SoftReference<byte[]> reference = plainTextBuffers.get();
+        byte[] buffer = reference != null ? reference.get() : null;
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[Math.max(size, 8192)];
+            plainTextBuffers.set(new SoftReference<>(buffer));
+        }
+        return buffer;
+    }
 }
@@ -2,8 +2,10 @@ package in.org.projecteka.hiu.dataflow;
 
 import in.org.projecteka.hiu.Caller;
 import in.org.projecteka.hiu.consent.TokenUtils;
+import in.org.projecteka.hiu.dataflow.model.DataEntry;
 import in.org.projecteka.hiu.dataflow.model.HealthInformation;
 import in.org.projecteka.hiu.dataflow.model.HealthInformationFetchRequest;
+import in.org.projecteka.hiu.dataflow.model.PatientDataEntry;
 import in.org.projecteka.hiu.dataflow.model.PatientHealthInformation;
 import in.org.projecteka.hiu.dataflow.model.DataRequestStatusResponse;
 import in.org.projecteka.hiu.dataflow.model.DataRequestStatusCheckRequest;
@@ -20,6 +22,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.nio.file.Files;
@@ -43,34 +46,69 @@ public class HealthInfoController {
     public Mono<HealthInformation> fetchHealthInformation(
             @PathVariable(value = "consent-request-id") String consentRequestId,
             @RequestParam(defaultValue = "${hiu.dataflowservice.defaultPageSize}") int limit,
-            @RequestParam(defaultValue = "0") int offset) {
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String cursor) {
+        var pageSize = pageSize(limit);
         return ReactiveSecurityContextHolder.getContext()
                 .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
                 .map(Caller::getUsername)
-                .flatMapMany(username -> healthInfoManager.fetchHealthInformation(consentRequestId, username))
-                .collectList()
-                .map(dataEntries -> HealthInformation.builder()
-                        .size(dataEntries.size())
-                        .limit(Math.min(limit, serviceProperties.getMaxPageSize()))
-                        .offset(offset)
-                        .entries(dataEntries).build());
+                .flatMap(username -> healthInfoManager.fetchHealthInformation(
+                        consentRequestId, username, pageSize, Math.max(offset, 0), cursor));
+    }
+
+    /**
+     * Same entries as the page above, written one JSON document per line as they are read from the database;
+     * all of them after the cursor (or offset) unless a limit is given.
+     */
+    @GetMapping(value = API_PATH_GET_INFO_FOR_SINGLE_CONSENT_REQUEST, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<DataEntry> streamHealthInformation(
+            @PathVariable(value = "consent-request-id") String consentRequestId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String cursor) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
+                .map(Caller::getUsername)
+                .flatMapMany(username -> healthInfoManager.streamHealthInformation(
+                        consentRequestId, username, streamLimit(limit), Math.max(offset, 0), cursor));
     }
 
     @PostMapping(API_PATH_FETCH_PATIENT_HEALTH_INFO)
     public Mono<PatientHealthInformation> fetchHealthInformation(@RequestBody HealthInformationFetchRequest dataRequest) {
-        var limit = Math.min(dataRequest.getLimit(serviceProperties.getDefaultPageSize()), serviceProperties.getMaxPageSize());
+        var limit = pageSize(dataRequest.getLimit(serviceProperties.getDefaultPageSize()));
+        var offset = Math.max(dataRequest.getOffset(), 0);
         return ReactiveSecurityContextHolder.getContext()
                 .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
                 .map(Caller::getUsername)
                 .flatMap(username -> healthInfoManager.fetchHealthInformation(
-                        dataRequest.getRequestIds(), username, limit, dataRequest.getOffset()))
+                        dataRequest.getRequestIds(), username, limit, offset))
                 .map(tuple -> PatientHealthInformation.builder()
                         .size(tuple.getT2())
                         .limit(limit)
-                        .offset(dataRequest.getOffset())
+                        .offset(offset)
                         .entries(tuple.getT1()).build());
     }
 
+    @PostMapping(value = API_PATH_FETCH_PATIENT_HEALTH_INFO, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PatientDataEntry> streamHealthInformation(@RequestBody HealthInformationFetchRequest dataRequest) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(securityContext -> (Caller) securityContext.getAuthentication().getPrincipal())
+                .map(Caller::getUsername)
+                .flatMapMany(username -> healthInfoManager.streamHealthInformation(dataRequest.getRequestIds(),
+                        username,
+                        streamLimit(dataRequest.getLimit()),
+                        Math.max(dataRequest.getOffset(), 0)));
+    }
+
+    // a negative limit or offset would reach the query as is and fail it
+    private int pageSize(int limit) {
+        return Math.max(Math.min(limit, serviceProperties.getMaxPageSize()), 1);
+    }
+
+    private static Integer streamLimit(Integer limit) {
+        return limit == null ? null : Math.max(limit, 1);
+    }
+
     @GetMapping(value = {API_PATH_GET_ATTACHMENT, CM_API_PATH_GET_ATTACHMENT})
     public Mono<ResponseEntity<FileSystemResource>> fetchHealthInformation(
             @PathVariable(value = "consent-request-id") String consentRequestId,
@@ -7,6 +7,8 @@ import in.org.projecteka.hiu.dataflow.model.DataEntry;
 import in.org.projecteka.hiu.dataflow.model.DataPartDetail;
 import in.org.projecteka.hiu.dataflow.model.DataRequestStatus;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
+import in.org.projecteka.hiu.dataflow.model.HealthInformation;
+import in.org.projecteka.hiu.dataflow.model.HealthInformationCursor;
 import in.org.projecteka.hiu.dataflow.model.PatientDataEntry;
 import in.org.projecteka.hiu.dataflow.model.PatientDataRequestDetail;
 import in.org.projecteka.hiu.dataflow.model.PatientDataRequestMapping;
@@ -18,6 +20,7 @@ import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -25,10 +28,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static in.org.projecteka.hiu.ClientError.consentArtefactGone;
 import static in.org.projecteka.hiu.ClientError.invalidHealthInformationRequest;
+import static in.org.projecteka.hiu.ClientError.invalidPageCursor;
+import static in.org.projecteka.hiu.ClientError.offsetWithPageCursor;
 import static in.org.projecteka.hiu.ClientError.unauthorizedRequester;
 import static in.org.projecteka.hiu.common.Constants.STATUS;
 import static in.org.projecteka.hiu.dataflow.model.DataRequestStatus.ERRORED;
@@ -52,7 +58,53 @@ public class HealthInfoManager {
     private final HealthInformationRepository healthInformationRepository;
     private final DataFlowServiceProperties serviceProperties;
 
-    public Flux<DataEntry> fetchHealthInformation(String consentRequestId, String requesterId) {
+    /**
+     * A page of the health information of the consent request. The page after the given cursor is read, or the
+     * one at offset when there is no cursor; the page carries the cursor of the next one, if there is more, and
+     * the number of entries of the consent request as its size.
+     */
+    public Mono<HealthInformation> fetchHealthInformation(String consentRequestId,
+                                                          String requesterId,
+                                                          int limit,
+                                                          int offset,
+                                                          String cursor) {
+        return decode(cursor, offset)
+                .flatMap(after -> consentDetailsByTransaction(consentRequestId, requesterId)
+                        .flatMap(consentDetails -> getDataEntries(consentDetails, after.orElse(null), limit, offset)));
+    }
+
+    /**
+     * The health information of the consent request, streamed as it is read; all of it after the cursor (or
+     * offset) when the limit is null.
+     */
+    public Flux<DataEntry> streamHealthInformation(String consentRequestId,
+                                                   String requesterId,
+                                                   Integer limit,
+                                                   int offset,
+                                                   String cursor) {
+        return decode(cursor, offset)
+                .flatMap(after -> consentDetailsByTransaction(consentRequestId, requesterId)
+                        .map(consentDetails -> Tuples.of(after, consentDetails)))
+                .flatMapMany(tuple -> healthInformationRepository.streamHealthInformationPage(
+                        List.copyOf(tuple.getT2().keySet()),
+                        tuple.getT1().orElse(null),
+                        limit,
+                        offset)
+                        .map(healthInfo -> toDataEntry(healthInfo,
+                                tuple.getT2().get(healthInfo.get("transaction_id").toString()))));
+    }
+
+    // the cursor is where the page starts, an offset along with it would be ignored
+    private Mono<Optional<HealthInformationCursor>> decode(String cursor, int offset) {
+        if (cursor != null && offset != 0) {
+            return error(offsetWithPageCursor());
+        }
+        return Mono.fromCallable(() -> Optional.ofNullable(cursor).map(HealthInformationCursor::decode))
+                .onErrorMap(IllegalArgumentException.class, e -> invalidPageCursor());
+    }
+
+    private Mono<Map<String, Map<String, String>>> consentDetailsByTransaction(String consentRequestId,
+                                                                             String requesterId) {
         return consentRepository.getConsentDetails(consentRequestId)
                 .filter(consentDetail -> isValidRequester(requesterId, consentDetail))
                 .switchIfEmpty(error(unauthorizedRequester()))
@@ -61,10 +113,8 @@ public class HealthInfoManager {
                 .filter(this::isConsentNotExpired)
                 .switchIfEmpty(error(consentArtefactGone()))
                 .flatMap(consentDetail -> dataFlowRepository.getTransactionId(consentDetail.get("consentId"))
-                        .flatMapMany(transactionId -> getDataEntries(
-                                transactionId,
-                                consentDetail.get("hipId"),
-                                consentDetail.get("hipName"))));
+                        .map(transactionId -> Tuples.of(transactionId, consentDetail)))
+                .collectMap(Tuple2::getT1, Tuple2::getT2);
     }
 
     public Mono<Tuple2<List<PatientDataEntry>, Integer>> fetchHealthInformation(List<String> dataRequestIds,
@@ -81,6 +131,29 @@ public class HealthInfoManager {
                 .flatMap(dataParts -> getDataEntries(limit, offset, dataParts));
     }
 
+    /**
+     * The health information of the data requests, streamed as it is read; all of it from the offset when the
+     * limit is null.
+     */
+    public Flux<PatientDataEntry> streamHealthInformation(List<String> dataRequestIds,
+                                                          String requesterId,
+                                                          Integer limit,
+                                                          int offset) {
+        return patientConsentRepository.fetchConsentRequestIds(dataRequestIds)
+                .map(PatientDataRequestMapping::getConsentRequestId)
+                .collectList()
+                .flatMapMany(dataFlowRepository::fetchDataPartDetails)
+                .collectList()
+                .filter(dataParts -> isValidRequester(dataParts, requesterId))
+                .switchIfEmpty(error(unauthorizedRequester()))
+                .flatMapMany(dataParts -> {
+                    var dataEntries = dataEntryBuilders(dataParts);
+                    return healthInformationRepository
+                            .streamHealthInformation(List.copyOf(dataEntries.keySet()), limit, offset)
+                            .map(healthInfo -> toPatientDataEntry(healthInfo, dataEntries));
+                });
+    }
+
     private boolean isValidRequester(List<DataPartDetail> dataParts, String requesterId) {
         return dataParts.stream().allMatch(dataPart -> dataPart.getRequester().equals(requesterId));
     }
@@ -88,6 +161,16 @@ public class HealthInfoManager {
     private Mono<Tuple2<List<PatientDataEntry>, Integer>> getDataEntries(int limit,
                                                                          int offset,
                                                                          List<DataPartDetail> dataParts) {
+        var dataEntries = dataEntryBuilders(dataParts);
+        var transactionIds = List.copyOf(dataEntries.keySet());
+        return healthInformationRepository.getHealthInformationWithTotalCount(transactionIds, limit, offset)
+                .map(page -> Tuples.of(page.getT1().stream()
+                                .map(healthInfo -> toPatientDataEntry(healthInfo, dataEntries))
+                                .collect(Collectors.toList()),
+                        page.getT2()));
+    }
+
+    private Map<String, PatientDataEntry.PatientDataEntryBuilder> dataEntryBuilders(List<DataPartDetail> dataParts) {
         HashMap<String, PatientDataEntry.PatientDataEntryBuilder> dataEntries = new HashMap<>();
         dataParts.forEach(dataPartDetail -> {
             dataEntries.put(dataPartDetail.getTransactionId(), PatientDataEntry.builder()
@@ -95,16 +178,17 @@ public class HealthInfoManager {
                     .hipId(dataPartDetail.getHipId())
                     .consentArtefactId(dataPartDetail.getConsentArtifactId()));
         });
-        var transactionIds = List.copyOf(dataEntries.keySet());
-        return healthInformationRepository.getHealthInformation(transactionIds, limit, offset)
-                .map(healthInfo -> dataEntries.get(healthInfo.get("transaction_id").toString())
-                        .status(toStatus((String) healthInfo.get(STATUS)))
-                        .data(healthInfo.get("data"))
-                        .docId((String) healthInfo.get("doc_id"))
-                        .docOriginId((String) healthInfo.get("doc_origin"))
-                        .build())
-                .collectList()
-                .zipWith(healthInformationRepository.getTotalCountOfEntries(transactionIds));
+        return dataEntries;
+    }
+
+    private PatientDataEntry toPatientDataEntry(Map<String, Object> healthInfo,
+                                                Map<String, PatientDataEntry.PatientDataEntryBuilder> dataEntries) {
+        return dataEntries.get(healthInfo.get("transaction_id").toString())
+                .status(toStatus((String) healthInfo.get(STATUS)))
+                .data(healthInfo.get("data"))
+                .docId((String) healthInfo.get("doc_id"))
+                .docOriginId((String) healthInfo.get("doc_origin"))
+                .build();
     }
 
     public Flux<String> getTransactionIdForConsentRequest(String consentRequestId, String username) {
@@ -246,16 +330,44 @@ public class HealthInfoManager {
         return consentDetail.get("requester").equals(requesterId);
     }
 
-    private Flux<DataEntry> getDataEntries(String transactionId, String hipId, String hipName) {
-        return healthInformationRepository.getHealthInformation(transactionId)
-                .map(healthInfo -> DataEntry.builder()
-                        .hipId(hipId)
-                        .hipName(hipName)
-                        .status(toStatus((String) healthInfo.get(STATUS)))
-                        .data(healthInfo.get("data"))
-                        .docId((String) healthInfo.get("doc_id"))
-                        .docOriginId((String) healthInfo.get("doc_origin"))
-                        .build());
+    private Mono<HealthInformation> getDataEntries(Map<String, Map<String, String>> consentDetails,
+                                                   HealthInformationCursor after,
+                                                   int limit,
+                                                   int offset) {
+        // one entry more than the page is read, to know whether there is a next page
+        return healthInformationRepository.getHealthInformationPage(List.copyOf(consentDetails.keySet()),
+                after,
+                limit + 1,
+                offset)
+                .map(pageWithTotal -> {
+                    var healthInfos = pageWithTotal.getT1();
+                    var page = healthInfos.subList(0, Math.min(limit, healthInfos.size()));
+                    var nextCursor = limit > 0 && healthInfos.size() > limit
+                            ? ((HealthInformationCursor) page.get(limit - 1).get("cursor")).encode()
+                            : null;
+                    var entries = page.stream()
+                            .map(healthInfo -> toDataEntry(healthInfo,
+                                    consentDetails.get(healthInfo.get("transaction_id").toString())))
+                            .collect(Collectors.toList());
+                    return HealthInformation.builder()
+                            .size(pageWithTotal.getT2())
+                            .limit(limit)
+                            .offset(offset)
+                            .entries(entries)
+                            .nextCursor(nextCursor)
+                            .build();
+                });
+    }
+
+    private DataEntry toDataEntry(Map<String, Object> healthInfo, Map<String, String> consentDetail) {
+        return DataEntry.builder()
+                .hipId(consentDetail.get("hipId"))
+                .hipName(consentDetail.get("hipName"))
+                .status(toStatus((String) healthInfo.get(STATUS)))
+                .data(healthInfo.get("data"))
+                .docId((String) healthInfo.get("doc_id"))
+                .docOriginId((String) healthInfo.get("doc_origin"))
+                .build();
     }
 
     private EntryStatus toStatus(String status) {
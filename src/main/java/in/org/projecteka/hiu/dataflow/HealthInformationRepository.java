@@ -1,41 +1,74 @@
 package in.org.projecteka.hiu.dataflow;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import io.vertx.core.AsyncResult;
-import io.vertx.core.Handler;
+import in.org.projecteka.hiu.dataflow.model.HealthInformationCursor;
+import in.org.projecteka.hiu.dataflow.model.RawJson;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Row;
-import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.RowStream;
+import io.vertx.sqlclient.SqlConnection;
 import io.vertx.sqlclient.Tuple;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
-import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
 import static in.org.projecteka.hiu.ClientError.dbOperationFailure;
+import static in.org.projecteka.hiu.common.QueryParameters.textArray;
 
 @AllArgsConstructor
 public class HealthInformationRepository {
-    private static final String SELECT_HEALTH_INFORMATION = "SELECT data, status, transaction_id, doc_id, doc_origin " +
-            "FROM health_information " +
-            "WHERE transaction_id=$1";
+    // entries of a part are ordered on what is saved for them, which is the same however often the part is saved
+    // and wherever its rows are moved; entries that compare equal on all of it are the same to the reader
+    private static final String ENTRY_POSITION = "row_number() OVER (PARTITION BY transaction_id, part_number " +
+            "ORDER BY doc_id, doc_origin, status, data) AS position";
+    private static final String SELECT_HEALTH_INFO_PAGE = "SELECT data, status, transaction_id, doc_id, doc_origin, " +
+            "part_number, " + ENTRY_POSITION + " " +
+            "FROM health_information WHERE transaction_id = ANY($1::text[]) " +
+            "ORDER BY transaction_id, part_number, position " +
+            "LIMIT $2 OFFSET $3";
+    private static final String SELECT_HEALTH_INFO_PAGE_WITH_TOTAL = "SELECT data, status, transaction_id, doc_id, " +
+            "doc_origin, part_number, " + ENTRY_POSITION + ", COUNT(*) OVER() AS total_count " +
+            "FROM health_information WHERE transaction_id = ANY($1::text[]) " +
+            "ORDER BY transaction_id, part_number, position " +
+            "LIMIT $2 OFFSET $3";
+    private static final String ENTRIES_AFTER = "FROM (" +
+            "SELECT data, status, transaction_id, doc_id, doc_origin, part_number, " + ENTRY_POSITION + " " +
+            "FROM health_information WHERE transaction_id = ANY($1::text[]) " +
+            "AND (transaction_id, part_number) >= ($2, $3)) entries " +
+            "WHERE (transaction_id, part_number) > ($2, $3) OR position > $4 " +
+            "ORDER BY transaction_id, part_number, position " +
+            "LIMIT $5";
+    private static final String SELECT_HEALTH_INFO_PAGE_AFTER = "SELECT data, status, transaction_id, doc_id, " +
+            "doc_origin, part_number, position " + ENTRIES_AFTER;
+    // counted apart, the entries before the cursor are not read for the page
+    private static final String SELECT_HEALTH_INFO_PAGE_AFTER_WITH_TOTAL = "SELECT data, status, transaction_id, " +
+            "doc_id, doc_origin, part_number, position, " +
+            "(SELECT COUNT(*) FROM health_information WHERE transaction_id = ANY($1::text[])) AS total_count " +
+            ENTRIES_AFTER;
     private static final String SELECT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS = "SELECT data, status, transaction_id, doc_id, doc_origin " +
-            "FROM health_information WHERE transaction_id in (%s) " +
+            "FROM health_information WHERE transaction_id = ANY($1::text[]) " +
             "ORDER BY transaction_id, latest_res_date DESC NULLS LAST " +
-            "LIMIT $1 OFFSET $2";
+            "LIMIT $2 OFFSET $3";
+
+    private static final String SELECT_HEALTH_INFO_WITH_TOTAL_FOR_MULTIPLE_TRANSACTIONS = "SELECT data, status, " +
+            "transaction_id, doc_id, doc_origin, COUNT(*) OVER() AS total_count " +
+            "FROM health_information WHERE transaction_id = ANY($1::text[]) " +
+            "ORDER BY transaction_id, latest_res_date DESC NULLS LAST " +
+            "LIMIT $2 OFFSET $3";
 
     private static final String COUNT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS = "SELECT COUNT(*) " +
-            "FROM health_information WHERE transaction_id in (%s)";
+            "FROM health_information WHERE transaction_id = ANY($1::text[])";
+
+    //Rows read from the cursor of a streamed query per round trip
+    private static final int STREAM_FETCH_SIZE = 50;
 
     private static final String DELETE_HEALTH_INFO_FOR_EXPIRED_CONSENT = "DELETE FROM health_information WHERE transaction_id=$1";
 
@@ -44,10 +77,105 @@ public class HealthInformationRepository {
 
     private final Logger logger = LoggerFactory.getLogger(HealthInformationRepository.class);
 
-    public Flux<Map<String, Object>> getHealthInformation(String transactionId) {
-        return Flux.create(fluxSink -> readOnlyClient.preparedQuery(SELECT_HEALTH_INFORMATION)
-                .execute(Tuple.of(transactionId),
-                        getHealthInfo(fluxSink, "Failed to get health information from transaction Id")));
+    /**
+     * Entries of the transactions in a stable order, each with the cursor of its position, and the number of
+     * entries of all of them. The entries after the given cursor are read, or from offset when there is none, so
+     * only the page requested is read and sent. Only a page past the last entry has no row to carry the count, it
+     * is then counted on its own.
+     */
+    public Mono<Tuple2<List<Map<String, Object>>, Integer>> getHealthInformationPage(List<String> transactionIds,
+                                                                                     HealthInformationCursor after,
+                                                                                     int limit,
+                                                                                     int offset) {
+        if (transactionIds.isEmpty()) {
+            return Mono.just(Tuples.of(List.of(), 0));
+        }
+        var query = after == null ? SELECT_HEALTH_INFO_PAGE_WITH_TOTAL : SELECT_HEALTH_INFO_PAGE_AFTER_WITH_TOTAL;
+        return withTotalCount(transactionIds,
+                query,
+                pageParameters(transactionIds, after, limit, offset),
+                after != null || offset > 0);
+    }
+
+    /**
+     * Same entries as {@link #getHealthInformationPage}, all of them after the cursor or offset when the limit is
+     * null. They are read through a cursor, STREAM_FETCH_SIZE rows at a time as they are requested, so no more
+     * than that is held in memory however many entries there are.
+     */
+    public Flux<Map<String, Object>> streamHealthInformationPage(List<String> transactionIds,
+                                                                 HealthInformationCursor after,
+                                                                 Integer limit,
+                                                                 int offset) {
+        if (transactionIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return stream(pageQuery(after),
+                pageParameters(transactionIds, after, limit, offset),
+                "Failed to get health information for given transaction ids");
+    }
+
+    /**
+     * Same entries as {@link #getHealthInformationWithTotalCount}, read through a cursor as they are requested;
+     * all of them from the offset when the limit is null.
+     */
+    public Flux<Map<String, Object>> streamHealthInformation(List<String> transactionIds, Integer limit, int offset) {
+        if (transactionIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return stream(SELECT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS,
+                Tuple.of(textArray(transactionIds), limit, offset),
+                "Failed to get health information for given transaction ids");
+    }
+
+    private static String pageQuery(HealthInformationCursor after) {
+        return after == null ? SELECT_HEALTH_INFO_PAGE : SELECT_HEALTH_INFO_PAGE_AFTER;
+    }
+
+    // a null limit is bound as LIMIT NULL, which postgres reads as no limit
+    private static Tuple pageParameters(List<String> transactionIds,
+                                        HealthInformationCursor after,
+                                        Integer limit,
+                                        int offset) {
+        return after == null
+                ? Tuple.of(textArray(transactionIds), limit, offset)
+                : Tuple.of(textArray(transactionIds), after.getTransactionId(), after.getPartNumber(),
+                        after.getPosition(), limit);
+    }
+
+    private Flux<Map<String, Object>> stream(String query, Tuple parameters, String errorMessage) {
+        return Flux.create(fluxSink -> readOnlyClient.getConnection(connected -> {
+            if (connected.failed()) {
+                logger.error(connected.cause().getMessage(), connected.cause());
+                fluxSink.error(dbOperationFailure(errorMessage));
+                return;
+            }
+            SqlConnection connection = connected.result();
+            // closing the connection ends the transaction of the cursor and gives the connection back to the pool
+            fluxSink.onDispose(connection::close);
+            connection.begin(begun -> {
+                if (begun.failed()) {
+                    logger.error(begun.cause().getMessage(), begun.cause());
+                    fluxSink.error(dbOperationFailure(errorMessage));
+                    return;
+                }
+                connection.prepare(query, prepared -> {
+                    if (prepared.failed()) {
+                        logger.error(prepared.cause().getMessage(), prepared.cause());
+                        fluxSink.error(dbOperationFailure(errorMessage));
+                        return;
+                    }
+                    RowStream<Row> rows = prepared.result().createStream(STREAM_FETCH_SIZE, parameters);
+                    rows.pause();
+                    rows.exceptionHandler(error -> {
+                        logger.error(error.getMessage(), error);
+                        fluxSink.error(dbOperationFailure(errorMessage));
+                    });
+                    rows.endHandler(ignored -> fluxSink.complete());
+                    rows.handler(row -> fluxSink.next(toHealthInfo(row)));
+                    fluxSink.onRequest(rows::fetch);
+                });
+            });
+        }));
     }
 
 
@@ -65,23 +193,55 @@ public class HealthInformationRepository {
                                 }));
     }
 
-    public Flux<Map<String, Object>> getHealthInformation(List<String> transactionIds, int limit, int offset) {
-        var generatedQuery = String.format(SELECT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS, joinByComma(transactionIds));
-        if(transactionIds.isEmpty()){
-            return Flux.empty();
+    /**
+     * A page of the entries of the transactions, with the number of entries of all of them counted by the same
+     * query. Only a page past the last entry has no row to carry the count, it is then counted on its own.
+     */
+    public Mono<Tuple2<List<Map<String, Object>>, Integer>> getHealthInformationWithTotalCount(
+            List<String> transactionIds,
+            int limit,
+            int offset) {
+        if (transactionIds.isEmpty()) {
+            return Mono.just(Tuples.of(List.of(), 0));
         }
-        return Flux.create(fluxSink -> readOnlyClient.preparedQuery(generatedQuery)
-                .execute(Tuple.of(limit, offset),
-                        getHealthInfo(fluxSink, "Failed to get health information for given transaction ids")));
+        return withTotalCount(transactionIds,
+                SELECT_HEALTH_INFO_WITH_TOTAL_FOR_MULTIPLE_TRANSACTIONS,
+                Tuple.of(textArray(transactionIds), limit, offset),
+                offset > 0);
+    }
+
+    private Mono<Tuple2<List<Map<String, Object>>, Integer>> withTotalCount(List<String> transactionIds,
+                                                                            String query,
+                                                                            Tuple parameters,
+                                                                            boolean mayBePastLastEntry) {
+        Mono<Tuple2<List<Map<String, Object>>, Integer>> page = Mono.create(monoSink ->
+                readOnlyClient.preparedQuery(query)
+                        .execute(parameters, handler -> {
+                            if (handler.failed()) {
+                                logger.error(handler.cause().getMessage(), handler.cause());
+                                monoSink.error(dbOperationFailure(
+                                        "Failed to get health information for given transaction ids"));
+                                return;
+                            }
+                            List<Map<String, Object>> healthInfos = new ArrayList<>();
+                            int totalCount = 0;
+                            for (Row row : handler.result()) {
+                                healthInfos.add(toHealthInfo(row));
+                                totalCount = row.getLong("total_count").intValue();
+                            }
+                            monoSink.success(Tuples.of(healthInfos, totalCount));
+                        }));
+        return page.flatMap(healthInfos -> healthInfos.getT1().isEmpty() && mayBePastLastEntry
+                ? getTotalCountOfEntries(transactionIds).map(totalCount -> Tuples.of(healthInfos.getT1(), totalCount))
+                : Mono.just(healthInfos));
     }
 
     public Mono<Integer> getTotalCountOfEntries(List<String> transactionIds) {
-        var generatedQuery = String.format(COUNT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS, joinByComma(transactionIds));
         if (transactionIds.isEmpty()){
             return Mono.just(0);
         }
-        return Mono.create(monoSink -> readOnlyClient.preparedQuery(generatedQuery)
-                .execute(handler -> {
+        return Mono.create(monoSink -> readOnlyClient.preparedQuery(COUNT_HEALTH_INFO_FOR_MULTIPLE_TRANSACTIONS)
+                .execute(Tuple.of(textArray(transactionIds)), handler -> {
                     if (handler.failed()) {
                         logger.error(handler.cause().getMessage(), handler.cause());
                         monoSink.error(new Exception("Failed to count total number of entries for given transaction ids"));
@@ -91,41 +251,19 @@ public class HealthInformationRepository {
                 }));
     }
 
-    private Map<String, Object> toHealthInfo(Row row) throws JsonProcessingException {
-        String data = row.getString("data");
+    // the bundle is passed on as stored, it is not parsed only to be serialized back into the response
+    private Map<String, Object> toHealthInfo(Row row) {
         Map<String, Object> healthInfo = new HashMap<>();
-        ObjectMapper objectMapper = new ObjectMapper()
-                .registerModule(new JavaTimeModule())
-                .configure(WRITE_DATES_AS_TIMESTAMPS, false);
-        healthInfo.put("data", objectMapper.readTree(data != null ? data : ""));
+        healthInfo.put("data", RawJson.of(row.getString("data")));
         healthInfo.put("status", row.getString("status"));
         healthInfo.put("transaction_id", row.getString("transaction_id"));
         healthInfo.put("doc_id", row.getString("doc_id"));
         healthInfo.put("doc_origin", row.getString("doc_origin"));
+        if (row.getColumnIndex("position") != -1) {
+            healthInfo.put("cursor", new HealthInformationCursor(row.getString("transaction_id"),
+                    row.getString("part_number"),
+                    row.getLong("position")));
+        }
         return healthInfo;
     }
-
-    private String joinByComma(List<String> list) {
-        return String.join(", ", list.stream().map(e -> String.format("'%s'", e)).collect(Collectors.toList()));
-    }
-
-    private Handler<AsyncResult<RowSet<Row>>> getHealthInfo(FluxSink<Map<String, Object>> fluxSink, String s) {
-        return handler -> {
-            if (handler.failed()) {
-                logger.error(handler.cause().getMessage(), handler.cause());
-                fluxSink.error(
-                        dbOperationFailure(s));
-                return;
-            }
-            for (Row row : handler.result()) {
-                try {
-                    fluxSink.next(toHealthInfo(row));
-                } catch (JsonProcessingException e) {
-                    logger.error(e.getMessage(), e);
-                    fluxSink.error(dbOperationFailure(e.getOriginalMessage()));
-                }
-            }
-            fluxSink.complete();
-        };
-    }
 }
@@ -0,0 +1,31 @@
+package in.org.projecteka.hiu.dataflow;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Uses the JDK provider, whose AES and GHASH are intrinsified (AES-NI, CLMUL) by the JIT on most hardware.
+ */
+public class JceAesGcmCipher implements AesGcmCipher {
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(JceAesGcmCipher::newCipher);
+
+    @Override
+    public int decrypt(byte[] encrypted, byte[] key, byte[] iv, byte[] output) throws Exception {
+        Cipher cipher = ciphers.get();
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        return cipher.doFinal(encrypted, 0, encrypted.length, output, 0);
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
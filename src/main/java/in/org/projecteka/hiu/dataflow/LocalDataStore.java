@@ -1,19 +1,33 @@
 package in.org.projecteka.hiu.dataflow;
 
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
+import in.org.projecteka.hiu.dataflow.model.SpooledNotification;
+import in.org.projecteka.hiu.dataprocessor.AttachmentStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.CompletionHandler;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.Comparator;
 import java.util.Optional;
@@ -23,6 +37,11 @@ import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS
 
 public class LocalDataStore {
     private static final Logger logger = LoggerFactory.getLogger(LocalDataStore.class);
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final Base64Variant CONTENT_ENCODING = Base64Variants.MIME_NO_LINEFEEDS
+            .withReadPadding(Base64Variant.PaddingReadBehaviour.PADDING_ALLOWED);
+
+    private final AttachmentStore attachmentStore = new AttachmentStore();
 
     public Mono<Void> serializeDataToFile(DataNotificationRequest dataNotificationRequest, Path outFileName) {
         return Mono.create(monoSink ->
@@ -56,8 +75,55 @@ public class LocalDataStore {
                                 () -> monoSink.error(new Exception("Not able to process the request"))));
     }
 
+    public Mono<Void> writeToFile(Flux<DataBuffer> content, Path outFileName) {
+        return Mono.fromCallable(() -> {
+            createParentDirectoriesIfNotExists(outFileName);
+            return outFileName;
+        })
+                .flatMap(path -> DataBufferUtils.write(content, path,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE))
+                .doOnError(throwable -> logger.error(throwable.getMessage(), throwable));
+    }
+
+    /**
+     * Walks through the spooled data notification token by token and picks up the header fields
+     * (transactionId, page details) and whether every entry either has a content or a link.
+     * Entry contents are never held in memory, they are streamed through a base64 decoder and discarded,
+     * so the memory used here does not depend on the size of the notification.
+     */
+    public Mono<SpooledNotification> readNotification(Path spooledFile) {
+        return Mono.fromCallable(() -> scanNotification(spooledFile))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<Long> sizeOf(Path path) {
+        return Mono.fromCallable(() -> Files.size(path))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<Void> moveFile(Path source, Path target) {
+        return Mono.<Void>fromCallable(() -> {
+            createParentDirectoriesIfNotExists(target);
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return null;
+        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnError(throwable -> logger.error(throwable.getMessage(), throwable));
+    }
+
+    public void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
     public void deleteExpiredConsentData(Path pathToTransactionDirectory) {
         logger.info(String.format("Deleting the health information from: %s", pathToTransactionDirectory.toString()));
+        attachmentStore.release(pathToTransactionDirectory);
         try (Stream<Path> paths = Files.walk(pathToTransactionDirectory).sorted(Comparator.reverseOrder())) {
             paths.forEach(path -> {
                 try {
@@ -75,6 +141,69 @@ public class LocalDataStore {
         Files.createDirectories(outFileName.getParent());
     }
 
+    private static SpooledNotification scanNotification(Path spooledFile) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(spooledFile.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Data notification must be a json object");
+            }
+            var notification = SpooledNotification.builder();
+            int numberOfEntries = 0;
+            int numberOfInvalidEntries = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (fieldName) {
+                    case "transactionId":
+                        notification.transactionId(parser.getValueAsString());
+                        break;
+                    case "pageNumber":
+                        notification.pageNumber(parser.getValueAsInt());
+                        break;
+                    case "pageCount":
+                        notification.pageCount(parser.getValueAsInt());
+                        break;
+                    case "entries":
+                        if (value != JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                            break;
+                        }
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            numberOfEntries++;
+                            if (!isValidEntry(parser)) {
+                                numberOfInvalidEntries++;
+                            }
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return notification
+                    .numberOfEntries(numberOfEntries)
+                    .numberOfInvalidEntries(numberOfInvalidEntries)
+                    .build();
+        }
+    }
+
+    private static boolean isValidEntry(JsonParser parser) throws IOException {
+        boolean hasContent = false;
+        boolean hasLink = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value != JsonToken.VALUE_STRING) {
+                parser.skipChildren();
+                continue;
+            }
+            if ("content".equals(fieldName)) {
+                hasContent = parser.readBinaryValue(CONTENT_ENCODING, OutputStream.nullOutputStream()) > 0;
+            } else if ("link".equals(fieldName)) {
+                hasLink = !parser.getText().isBlank();
+            }
+        }
+        return hasContent || hasLink;
+    }
+
     private static Optional<byte[]> contentFromRequest(DataNotificationRequest dataNotificationRequest) {
         ObjectMapper objectMapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule())
@@ -16,4 +16,6 @@ public class HealthInformation {
     private int limit;
     private int offset;
     private List<DataEntry> entries;
+    //Token of the page after this one, absent on the last page
+    private String nextCursor;
 }
@@ -0,0 +1,40 @@
+package in.org.projecteka.hiu.dataflow.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Position of an entry in the health information of a consent request; entries are ordered by transaction, part
+ * and their position in the part, which only depends on the content saved for them. The next page is fetched from
+ * the parts after the last entry given and the entries after it in its own part, so a page costs no more than
+ * reading one part however deep it is. Clients get it as an opaque token.
+ */
+@Value
+@AllArgsConstructor
+public class HealthInformationCursor {
+    private static final String SEPARATOR = "\n";
+
+    String transactionId;
+    String partNumber;
+    long position;
+
+    public String encode() {
+        var value = String.join(SEPARATOR, transactionId, partNumber, String.valueOf(position));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token is not one given by {@link #encode()}
+     */
+    public static HealthInformationCursor decode(String token) {
+        var parts = new String(Base64.getUrlDecoder().decode(token), UTF_8).split(SEPARATOR, -1);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid health information cursor");
+        }
+        return new HealthInformationCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+    }
+}
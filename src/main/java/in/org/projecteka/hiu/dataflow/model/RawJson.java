@@ -0,0 +1,44 @@
+package in.org.projecteka.hiu.dataflow.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import lombok.EqualsAndHashCode;
+
+import java.io.IOException;
+
+/**
+ * A JSON document as stored, e.g. the bundle of a health information entry. It is written into responses as it
+ * is, without being parsed into a tree and serialized back, so the cost of returning a bundle doesn't grow with
+ * the parsing of its content.
+ */
+@EqualsAndHashCode
+@JsonSerialize(using = RawJson.Serializer.class)
+public class RawJson {
+    private final String json;
+
+    private RawJson(String json) {
+        this.json = json;
+    }
+
+    public static RawJson of(String json) {
+        return json == null || json.isBlank() ? null : new RawJson(json);
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+
+    public static class Serializer extends StdSerializer<RawJson> {
+        public Serializer() {
+            super(RawJson.class);
+        }
+
+        @Override
+        public void serialize(RawJson value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeRawValue(value.json);
+        }
+    }
+}
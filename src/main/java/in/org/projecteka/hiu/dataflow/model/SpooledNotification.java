@@ -0,0 +1,24 @@
+package in.org.projecteka.hiu.dataflow.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Header level details of a data notification that has been spooled to disk as is, gathered without
+ * materializing the (potentially huge) encrypted entry contents.
+ */
+@Builder
+@Getter
+@AllArgsConstructor
+public class SpooledNotification {
+    private final String transactionId;
+    private final int pageNumber;
+    private final int pageCount;
+    private final int numberOfEntries;
+    private final int numberOfInvalidEntries;
+
+    public boolean hasInvalidEntries() {
+        return numberOfInvalidEntries > 0;
+    }
+}
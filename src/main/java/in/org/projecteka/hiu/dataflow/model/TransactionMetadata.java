@@ -0,0 +1,17 @@
+package in.org.projecteka.hiu.dataflow.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionMetadata {
+    private String consentId;
+    private String hipId;
+    private String consentManagerId;
+    private DataFlowRequestKeyMaterial keyMaterial;
+}
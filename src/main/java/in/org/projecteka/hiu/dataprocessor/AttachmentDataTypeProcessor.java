@@ -1,26 +1,17 @@
 package in.org.projecteka.hiu.dataprocessor;
 
-import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import in.org.projecteka.hiu.dataprocessor.model.BundleContext;
 import org.hl7.fhir.r4.model.Attachment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URI;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.util.Base64;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class AttachmentDataTypeProcessor {
 
@@ -36,53 +27,71 @@ public class AttachmentDataTypeProcessor {
             "VIDEO/MPEG", ".mpeg");
     public static final String DEFAULT_FILE_EXTENSION = ".txt";
 
+    private final AttachmentDownloader attachmentDownloader;
+    private final AttachmentStore attachmentStore;
+
+    public AttachmentDataTypeProcessor(AttachmentDownloader attachmentDownloader) {
+        this(attachmentDownloader, new AttachmentStore());
+    }
+
+    public AttachmentDataTypeProcessor(AttachmentDownloader attachmentDownloader, AttachmentStore attachmentStore) {
+        this.attachmentDownloader = attachmentDownloader;
+        this.attachmentStore = attachmentStore;
+    }
+
     public static String getFileExtension(String mimeType) {
         return MEDIA_TO_FILE_EXTENSION.get(mimeType);
     }
 
-    public Path process(Attachment attachment, Path localStorePath) {
-        if (hasLink(attachment)) {
-            return downloadAndSaveFile(attachment, localStorePath);
-        } else {
-            return saveAttachmentAsFile(attachment, localStorePath);
-        }
+    /**
+     * Saves the attachment data right away, linked attachments are downloaded in the background. Either way the
+     * returned file is registered with the bundle, which awaits it before the bundle is encoded again.
+     */
+    public CompletableFuture<Path> process(Attachment attachment, Path localStorePath, BundleContext bundleContext) {
+        CompletableFuture<Path> attachmentFile = hasLink(attachment)
+                                                 ? downloadAndSaveFile(attachment, localStorePath)
+                                                 : saveAttachmentAsFile(attachment, localStorePath);
+        bundleContext.awaitBeforeEncoding(attachmentFile);
+        return attachmentFile;
     }
 
-    private Path saveAttachmentAsFile(Attachment attachment, Path localStorePath) throws RuntimeException {
+    private CompletableFuture<Path> saveAttachmentAsFile(Attachment attachment, Path localStorePath) {
         if (attachment.getData() != null) {
-            byte[] data = Base64.getDecoder().decode(attachment.getDataElement().getValueAsString());
-            Path attachmentFilePath = getFileAttachmentPath(attachment, localStorePath);
-            try (FileChannel channel = (FileChannel) Files.newByteChannel(attachmentFilePath,
-                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
-                ByteBuffer buffer = ByteBuffer.allocate(data.length);
-                buffer.put(data);
-                buffer.flip();
-                channel.write(buffer);
+            Path attachmentFilePath;
+            try {
+                attachmentFilePath = attachmentStore.save(attachment.getData(),
+                        getFileExtension(attachment),
+                        localStorePath);
             } catch (IOException ex) {
                 logger.error(ex.getMessage(), ex);
                 throw new RuntimeException(ex);
             }
             attachment.setData(null);
             attachment.setUrl(referenceWebUrl(attachmentFilePath));
-            return attachmentFilePath;
+            return CompletableFuture.completedFuture(attachmentFilePath);
         } else {
             return downloadAndSaveFile(attachment, localStorePath);
         }
     }
 
-    private Path downloadAndSaveFile(Attachment attachment, Path localStorePath) {
-        Path attachmentFilePath = getFileAttachmentPath(attachment, localStorePath);
-        HttpGet request = new HttpGet(URI.create(attachment.getUrl()));
-        try (CloseableHttpClient client = HttpClientBuilder.create().build();
-             CloseableHttpResponse response = client.execute(request)) {
-            HttpEntity entity = response.getEntity();
-            InputStream inputStream = entity.getContent();
-            Files.copy(inputStream, attachmentFilePath);
-        } catch (IOException e) {
-            logger.error(e.getMessage(), e);
-        }
-        attachment.setUrl(referenceWebUrl(attachmentFilePath));
-        return attachmentFilePath;
+    private CompletableFuture<Path> downloadAndSaveFile(Attachment attachment, Path localStorePath) {
+        Path downloadPath = getFileAttachmentPath(attachment, localStorePath);
+        String url = attachment.getUrl();
+        return attachmentDownloader.download(url, downloadPath)
+                .thenApply(downloaded -> {
+                    try {
+                        return attachmentStore.adopt(downloaded, getFileExtension(attachment), localStorePath);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .whenComplete((path, error) -> {
+                    if (error != null) {
+                        logger.error(String.format("Could not download attachment from %s", url), error);
+                        return;
+                    }
+                    attachment.setUrl(referenceWebUrl(path));
+                });
     }
 
     private Path getFileAttachmentPath(Attachment attachment, Path localStorePath) {
@@ -0,0 +1,161 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Downloads linked attachments to the local store. A single instance is shared by all bundles being processed,
+ * connections are pooled per host and the number of downloads in flight is bounded by the download threads.
+ */
+public class AttachmentDownloader implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentDownloader.class);
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(500);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService downloads;
+    private final int maxRetries;
+    private final long maxSizeInBytes;
+
+    public AttachmentDownloader() {
+        this(4, 16, 4, Duration.ofSeconds(30), 2, 100 * 1024 * 1024);
+    }
+
+    public AttachmentDownloader(int connectionsPerHost,
+                                int maxConnections,
+                                int parallelism,
+                                Duration timeout,
+                                int maxRetries,
+                                long maxSizeInBytes) {
+        var connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(Math.max(connectionsPerHost, 1));
+        connectionManager.setMaxTotal(Math.max(maxConnections, 1));
+        int timeoutInMillis = (int) timeout.toMillis();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(timeoutInMillis)
+                        .setConnectionRequestTimeout(timeoutInMillis)
+                        .setSocketTimeout(timeoutInMillis)
+                        .build())
+                .build();
+        this.downloads = Executors.newFixedThreadPool(Math.max(parallelism, 1), new ThreadFactoryBuilder()
+                .setNameFormat("attachment-download-%d")
+                .setDaemon(true)
+                .build());
+        this.maxRetries = maxRetries;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * Streams the attachment at the url to the target file. The file only appears once the download is complete,
+     * failed downloads are retried with an exponential backoff unless the attachment is too large or is refused.
+     */
+    public CompletableFuture<Path> download(String url, Path target) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return downloadWithRetries(url, target);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, downloads);
+    }
+
+    private Path downloadWithRetries(String url, Path target) throws IOException, InterruptedException {
+        Duration backoff = INITIAL_BACKOFF;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return downloadOnce(url, target);
+            } catch (AttachmentTooLargeException | DownloadRefusedException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                logger.warn("Could not download attachment from {}, retrying in {} ms: {}",
+                        url, backoff.toMillis(), e.getMessage());
+                Thread.sleep(backoff.toMillis());
+                backoff = backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    private Path downloadOnce(String url, Path target) throws IOException {
+        Path partFile = target.resolveSibling(target.getFileName() + ".part");
+        try (CloseableHttpResponse response = httpClient.execute(new HttpGet(URI.create(url)))) {
+            int status = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            if (status >= 500) {
+                throw new IOException(String.format("Attachment download failed with status %d", status));
+            }
+            if (status >= 300 || entity == null) {
+                throw new DownloadRefusedException(String.format("Attachment download refused with status %d", status));
+            }
+            if (entity.getContentLength() > maxSizeInBytes) {
+                throw new AttachmentTooLargeException(entity.getContentLength(), maxSizeInBytes);
+            }
+            try (InputStream content = entity.getContent();
+                 OutputStream file = Files.newOutputStream(partFile)) {
+                copyAtMost(content, file);
+            }
+            return Files.move(partFile, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+    }
+
+    private void copyAtMost(InputStream content, OutputStream file) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            total += read;
+            if (total > maxSizeInBytes) {
+                throw new AttachmentTooLargeException(total, maxSizeInBytes);
+            }
+            file.write(buffer, 0, read);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        downloads.shutdownNow();
+        httpClient.close();
+    }
+
+    private static class DownloadRefusedException extends IOException {
+        DownloadRefusedException(String message) {
+            super(message);
+        }
+    }
+
+    private static class AttachmentTooLargeException extends IOException {
+        AttachmentTooLargeException(long size, long maxSize) {
+            super(String.format("Attachment of at least %d bytes exceeds the limit of %d bytes", size, maxSize));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Stores attachments once per node, under the SHA-256 of their content. A transaction directory holds a hard link
+ * to the stored content with the same name, so attachments are still served from the transaction directory, and
+ * the link count of the stored file is the number of transactions referring to it.
+ * The store sits next to the consent request directories, at the root of the local storage. Where a transaction
+ * directory can't link to it, the transaction directory gets a copy of its own and the content is not kept in the
+ * store.
+ */
+public class AttachmentStore {
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentStore.class);
+    private static final String STORE_DIRECTORY = ".attachments";
+    private static final String LINK_COUNT = "unix:nlink";
+    private static final int MAX_PUBLISH_ATTEMPTS = 3;
+
+    /**
+     * Content already in the store is not written again, it is only linked into the transaction directory.
+     */
+    public Path save(byte[] data, String extension, Path transactionDirectory) throws IOException {
+        String fileName = Hashing.sha256().hashBytes(data) + extension;
+        Path stored = storedFile(fileName, transactionDirectory);
+        Path target = transactionDirectory.resolve(fileName);
+        if (Files.exists(stored)) {
+            try {
+                return link(stored, target);
+            } catch (NoSuchFileException e) {
+                logger.debug("Stored attachment {} was released, storing it again", stored);
+            }
+        }
+        Path partFile = partFileFor(stored);
+        AttachmentWriter.write(data, partFile);
+        return publish(partFile, stored, target);
+    }
+
+    /**
+     * Moves an already written file, like a downloaded attachment, into the store.
+     */
+    public Path adopt(Path file, String extension, Path transactionDirectory) throws IOException {
+        String fileName = com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.sha256()) + extension;
+        Path stored = storedFile(fileName, transactionDirectory);
+        Path target = transactionDirectory.resolve(fileName);
+        if (Files.exists(stored)) {
+            try {
+                Path linked = link(stored, target);
+                Files.delete(file);
+                return linked;
+            } catch (NoSuchFileException e) {
+                logger.debug("Stored attachment {} was released, storing it again", stored);
+            }
+        }
+        Path partFile = partFileFor(stored);
+        Files.move(file, partFile);
+        return publish(partFile, stored, target);
+    }
+
+    /**
+     * Removes the stored content that only the given transaction directory refers to, before it is deleted.
+     */
+    public void release(Path transactionDirectory) {
+        if (!Files.isDirectory(transactionDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(transactionDirectory)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                Path stored = storedFile(file.getFileName().toString(), transactionDirectory);
+                try {
+                    if (Files.exists(stored) && Files.isSameFile(stored, file) && linkCount(stored) <= 2) {
+                        Files.delete(stored);
+                    }
+                } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+                    logger.error(String.format("Could not release stored attachment %s", stored), e);
+                }
+            });
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    private Path storedFile(String fileName, Path transactionDirectory) {
+        Path consentRequestDirectory = transactionDirectory.getParent();
+        Path storageRoot = consentRequestDirectory != null && consentRequestDirectory.getParent() != null
+                           ? consentRequestDirectory.getParent()
+                           : transactionDirectory;
+        return storageRoot.resolve(STORE_DIRECTORY).resolve(fileName.substring(0, 2)).resolve(fileName);
+    }
+
+    private Path partFileFor(Path stored) throws IOException {
+        Files.createDirectories(stored.getParent());
+        return stored.resolveSibling(String.format("%s.%s.part", stored.getFileName(), UUID.randomUUID()));
+    }
+
+    /**
+     * Publishes a part file written in the store as the stored content and links it into the transaction
+     * directory. The stored file is created as a new link to the part file, never moved over, so a file already
+     * stored by a concurrent save keeps its links and their count. The part file is held until the content is
+     * linked, a stored file released in the meantime is published again from it.
+     */
+    private Path publish(Path partFile, Path stored, Path target) throws IOException {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    Files.createLink(stored, partFile);
+                } catch (FileAlreadyExistsException e) {
+                    // stored by an earlier or concurrent save, either copy is the same
+                } catch (UnsupportedOperationException e) {
+                    moveIntoStore(partFile, stored);
+                }
+                try {
+                    return link(stored, target);
+                } catch (NoSuchFileException e) {
+                    if (attempt == MAX_PUBLISH_ATTEMPTS) {
+                        throw e;
+                    }
+                    logger.debug("Stored attachment {} was released, storing it again", stored);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+    }
+
+    private void moveIntoStore(Path partFile, Path stored) throws IOException {
+        // the file system can't link files, the part file is moved instead but never over a stored file
+        try {
+            Files.move(partFile, stored);
+        } catch (FileAlreadyExistsException e) {
+            // stored by an earlier or concurrent save, either copy is the same
+        }
+    }
+
+    private Path link(Path stored, Path link) throws IOException {
+        if (Files.exists(link)) {
+            return link;
+        }
+        try {
+            Files.createLink(link, stored);
+        } catch (FileAlreadyExistsException e) {
+            return link;
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // the store and the transaction directory are on file systems that can not share the file. The copy is
+            // not a link of the stored file, release would never count it, so the store doesn't keep the content;
+            // links made by other transactions keep theirs.
+            Files.copy(stored, link);
+            Files.deleteIfExists(stored);
+        }
+        return link;
+    }
+
+    private int linkCount(Path stored) throws IOException {
+        return (Integer) Files.getAttribute(stored, LINK_COUNT);
+    }
+}
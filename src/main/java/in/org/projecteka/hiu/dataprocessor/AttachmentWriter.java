@@ -0,0 +1,56 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes inline attachment data to the local store. FHIR parsers already hold base64 data decoded, the bytes are
+ * written from that array as is, without encoding them back to base64 or copying them into another buffer.
+ * Keeps a running count of bytes written and the time spent writing them, logged as throughput at debug level.
+ */
+final class AttachmentWriter {
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentWriter.class);
+    private static final LongAdder bytesWritten = new LongAdder();
+    private static final LongAdder nanosWriting = new LongAdder();
+
+    private AttachmentWriter() {
+    }
+
+    static void write(byte[] data, Path target) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        bytesWritten.add(data.length);
+        nanosWriting.add(elapsed);
+        logger.debug("Wrote attachment {} of {} bytes in {} ms, attachments written at {} bytes/s",
+                target.getFileName(), data.length, TimeUnit.NANOSECONDS.toMillis(elapsed), bytesPerSecond());
+    }
+
+    static long bytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Bytes of attachments written per second spent writing them, since the application started.
+     */
+    static long bytesPerSecond() {
+        long nanos = nanosWriting.sum();
+        return nanos == 0 ? 0 : (long) (bytesWritten.sum() * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+    }
+}
@@ -0,0 +1,43 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Batches of up to maxSize items, a batch started is also closed at the next tick of flushInterval, so its items
+ * don't wait on slow ones behind them. Unlike bufferTimeout, which fails when its timer closes a batch no one
+ * asked for yet, batches are only closed as they are requested; ticks that come while the batches before are
+ * still taken are dropped, and items are held back instead.
+ */
+final class Batches {
+    private Batches() {
+    }
+
+    static <T> Flux<List<T>> of(Flux<T> items, int maxSize, Duration flushInterval) {
+        if (flushInterval.isZero() || flushInterval.isNegative()) {
+            return items.buffer(maxSize);
+        }
+        return items.publish(shared -> Flux.defer(() -> {
+            var batchSize = new AtomicInteger();
+            Flux<Optional<T>> ticks = Flux.interval(flushInterval)
+                    .onBackpressureDrop()
+                    .map(tick -> Optional.<T>empty())
+                    .takeUntilOther(shared.ignoreElements());
+            return Flux.merge(1, shared.map(Optional::of), ticks)
+                    .bufferUntil(item -> {
+                        if (item.isEmpty() || batchSize.incrementAndGet() >= maxSize) {
+                            batchSize.set(0);
+                            return true;
+                        }
+                        return false;
+                    })
+                    .map(batch -> batch.stream().flatMap(Optional::stream).collect(Collectors.<T>toList()))
+                    .filter(batch -> !batch.isEmpty());
+        }), 1);
+    }
+}
@@ -10,18 +10,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.util.Base64;
 import java.util.Date;
-import java.util.UUID;
 
 public class BinaryResourceProcessor implements HITypeResourceProcessor {
     private static final Logger logger = LoggerFactory.getLogger(BinaryResourceProcessor.class);
+
+    private final AttachmentStore attachmentStore;
+
+    public BinaryResourceProcessor() {
+        this(new AttachmentStore());
+    }
+
+    public BinaryResourceProcessor(AttachmentStore attachmentStore) {
+        this.attachmentStore = attachmentStore;
+    }
+
     @Override
     public boolean supports(ResourceType type) {
         return type.equals(ResourceType.Binary);
@@ -35,15 +39,11 @@ public class BinaryResourceProcessor implements HITypeResourceProcessor {
         }
         Binary binaryResource = (Binary) resource;
         Path localStoragePath = dataContext.getLocalStoragePath();
-        byte[] data = Base64.getDecoder().decode(binaryResource.getContentAsBase64());
-        String randomFileName = UUID.randomUUID().toString() + getFileExtension(binaryResource.getContentType());
-        Path localPath = Paths.get(localStoragePath.toString(), randomFileName);
-        try (FileChannel channel = (FileChannel) Files.newByteChannel(localPath,
-                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
-            ByteBuffer buffer = ByteBuffer.allocate(data.length);
-            buffer.put(data);
-            buffer.flip();
-            channel.write(buffer);
+        Path localPath;
+        try {
+            localPath = attachmentStore.save(binaryResource.getData(),
+                    getFileExtension(binaryResource.getContentType()),
+                    localStoragePath);
         } catch (IOException ex) {
             logger.error(ex.getMessage(), ex);
             throw new RuntimeException(ex);
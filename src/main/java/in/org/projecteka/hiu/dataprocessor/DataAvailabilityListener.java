@@ -3,111 +3,126 @@ package in.org.projecteka.hiu.dataprocessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import in.org.projecteka.hiu.DestinationsConfig;
-import in.org.projecteka.hiu.HiuProperties;
-import in.org.projecteka.hiu.LocalDicomServerProperties;
 import in.org.projecteka.hiu.MessageListenerContainerFactory;
-import in.org.projecteka.hiu.clients.HealthInformationClient;
 import in.org.projecteka.hiu.common.Constants;
-import in.org.projecteka.hiu.common.Gateway;
 import in.org.projecteka.hiu.common.RabbitQueueNames;
 import in.org.projecteka.hiu.common.TraceableMessage;
-import in.org.projecteka.hiu.consent.ConsentRepository;
-import in.org.projecteka.hiu.dataflow.DataFlowRepository;
-import in.org.projecteka.hiu.dataflow.Decryptor;
 import in.org.projecteka.hiu.dataprocessor.model.DataAvailableMessage;
-import in.org.projecteka.hiu.dicomweb.OrthancDicomWebServer;
 import lombok.AllArgsConstructor;
 import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
-import org.springframework.amqp.AmqpRejectAndDontRequeueException;
-import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
 
 import javax.annotation.PostConstruct;
-import java.util.Arrays;
-import java.util.List;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
 
 import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
 import static in.org.projecteka.hiu.ClientError.queueNotFound;
+import static in.org.projecteka.hiu.common.Constants.CORRELATION_ID;
 import static in.org.projecteka.hiu.common.Serializer.to;
 
 @AllArgsConstructor
 public class DataAvailabilityListener {
     private final MessageListenerContainerFactory messageListenerContainerFactory;
     private final DestinationsConfig destinationsConfig;
-    private final HealthDataRepository healthDataRepository;
-    private final DataFlowRepository dataFlowRepository;
-    private final LocalDicomServerProperties dicomServerProperties;
-    private final HealthInformationClient healthInformationClient;
-    private final Gateway gateway;
-    private final HiuProperties hiuProperties;
-    private final ConsentRepository consentRepository;
+    private final HealthDataProcessor healthDataProcessor;
     private final RabbitQueueNames queueNames;
+    private final DataProcessorProperties dataProcessorProperties;
 
     private static final Logger logger = LoggerFactory.getLogger(DataAvailabilityListener.class);
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(WRITE_DATES_AS_TIMESTAMPS, false);
 
+    /**
+     * Regular and large parts are consumed from queues of their own, each with its own limit of parts in flight,
+     * so that a large part being processed doesn't keep the small ones waiting.
+     */
     @PostConstruct
-    @SneakyThrows
     public void subscribe() {
+        subscribe(queueNames.getDataFlowProcessQueue(), dataProcessorProperties.getMaxPartsInFlight());
+        subscribe(queueNames.getDataFlowProcessLargeQueue(), dataProcessorProperties.getMaxLargePartsInFlight());
+    }
+
+    @SneakyThrows
+    private void subscribe(String queueName, int maxPartsInFlight) {
         DestinationsConfig.DestinationInfo destinationInfo = destinationsConfig
                 .getQueues()
-                .get(queueNames.getDataFlowProcessQueue());
+                .get(queueName);
         if (destinationInfo == null) {
             throw queueNotFound();
         }
 
         MessageListenerContainer mlc = messageListenerContainerFactory
-                .createMessageListenerContainer(destinationInfo.getRoutingKey());
+                .createMessageListenerContainer(destinationInfo.getRoutingKey(), AcknowledgeMode.MANUAL);
 
-        MessageListener messageListener = message -> {
-            var traceableMessage = to(message.getBody(), TraceableMessage.class);
-            DataAvailableMessage dataAvailableMessage = deserializeMessage((traceableMessage.get().getMessage()));
-            String correlationId = traceableMessage.get().getCorrelationId();
-            MDC.put(Constants.CORRELATION_ID, correlationId);
-            logger.info(String.format("Received notification of data availability for transaction id : %s",
-                    dataAvailableMessage.getTransactionId()));
-            logger.info(String.format("Processing data from file : %s", dataAvailableMessage.getPathToFile()));
+        // The consumer thread only hands the part over to the processing pipeline, the delivery is acknowledged
+        // (or rejected) once the pipeline completes. The consumer waits for a slot when maxPartsInFlight parts are
+        // being processed, whatever the prefetch. A part that fails is requeued once, resuming from its
+        // checkpoint, and goes to the dead letter queue if it fails again, marked as ERRORED only then.
+        Semaphore partsInFlight = new Semaphore(Math.max(maxPartsInFlight, 1));
+        ChannelAwareMessageListener messageListener = (message, channel) -> {
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            boolean redelivered = Boolean.TRUE.equals(message.getMessageProperties().getRedelivered());
+            DataAvailableMessage dataAvailableMessage;
+            String correlationId;
             try {
-                HealthDataProcessor healthDataProcessor = new HealthDataProcessor(
-                        healthDataRepository,
-                        dataFlowRepository,
-                        new Decryptor(),
-                        allResourceProcessors(),
-                        healthInformationClient,
-                        gateway,
-                        hiuProperties,
-                        consentRepository);
-                healthDataProcessor.process(dataAvailableMessage);
-                MDC.clear();
+                var traceableMessage = to(message.getBody(), TraceableMessage.class);
+                dataAvailableMessage = deserializeMessage((traceableMessage.get().getMessage()));
+                correlationId = traceableMessage.get().getCorrelationId();
             } catch (Exception exception) {
                 logger.error(exception.toString());
-                throw new AmqpRejectAndDontRequeueException(exception);
+                channel.basicReject(deliveryTag, false);
+                return;
             }
+            try {
+                partsInFlight.acquire();
+            } catch (InterruptedException exception) {
+                // the container is stopping, leave the part to another consumer
+                Thread.currentThread().interrupt();
+                channel.basicReject(deliveryTag, true);
+                return;
+            }
+            MDC.put(Constants.CORRELATION_ID, correlationId);
+            logger.info(String.format("Received notification of data availability for transaction id : %s",
+                    dataAvailableMessage.getTransactionId()));
+            logger.info(String.format("Processing data from file : %s", dataAvailableMessage.getPathToFile()));
+            healthDataProcessor.processAsync(dataAvailableMessage, redelivered)
+                    .subscriberContext(ctx -> correlationId == null ? ctx : ctx.put(CORRELATION_ID, correlationId))
+                    .doFinally(signal -> partsInFlight.release())
+                    .subscribe(nothing -> { },
+                            exception -> {
+                                logger.error(exception.toString());
+                                acknowledge(() -> channel.basicReject(deliveryTag, !redelivered));
+                            },
+                            () -> acknowledge(() -> channel.basicAck(deliveryTag, false)));
+            MDC.clear();
         };
         mlc.setupMessageListener(messageListener);
         mlc.start();
     }
 
-    private List<HITypeResourceProcessor> allResourceProcessors() {
-        return Arrays.asList(
-                new CompositionResourceProcessor(),
-                new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(dicomServerProperties)),
-                new DocumentReferenceResourceProcessor(),
-                new MedicationRequestResourceProcessor(),
-                new ConditionResourceProcessor(),
-                new ObservationResourceProcessor(),
-                new BinaryResourceProcessor(),
-                new ImmunizationResourceProcessor(),
-                new ImmunizationRecommendationProcessor());
+    private void acknowledge(Acknowledgement acknowledgement) {
+        try {
+            acknowledgement.send();
+        } catch (IOException exception) {
+            // the channel is gone, the broker redelivers the message to another consumer
+            logger.error("Could not acknowledge data availability message", exception);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Acknowledgement {
+        void send() throws IOException;
     }
 
     @SneakyThrows
     private DataAvailableMessage deserializeMessage(Object message) {
-        ObjectMapper mapper = new ObjectMapper()
-                .registerModule(new JavaTimeModule())
-                .configure(WRITE_DATES_AS_TIMESTAMPS, false);
         return mapper.convertValue(message, DataAvailableMessage.class);
     }
 }
@@ -0,0 +1,154 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
+import in.org.projecteka.hiu.dataflow.model.Entry;
+import in.org.projecteka.hiu.dataflow.model.KeyMaterial;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Reads a data part from its file with a streaming parser. The header is read without the entries, and entries
+ * are materialized one at a time as they are requested, so memory used does not grow with the size of the part.
+ */
+class DataPartFile {
+    private static final String ENTRIES = "entries";
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    DataPartFile(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    static class Header {
+        private final DataNotificationRequest notification;
+        private final int numberOfEntries;
+    }
+
+    /**
+     * Everything but the entries, which are only counted. Their contents are skipped without being buffered.
+     */
+    Header readHeader() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(path.toFile())) {
+            expectObject(parser);
+            var notification = new DataNotificationRequest();
+            int numberOfEntries = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (fieldName) {
+                    case "transactionId":
+                        notification.setTransactionId(parser.getValueAsString());
+                        break;
+                    case "pageNumber":
+                        notification.setPageNumber(parser.getValueAsInt());
+                        break;
+                    case "pageCount":
+                        notification.setPageCount(parser.getValueAsInt());
+                        break;
+                    case "keyMaterial":
+                        notification.setKeyMaterial(objectMapper.readValue(parser, KeyMaterial.class));
+                        break;
+                    case ENTRIES:
+                        if (value != JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                            break;
+                        }
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            numberOfEntries++;
+                            parser.skipChildren();
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return new Header(notification, numberOfEntries);
+        }
+    }
+
+    /**
+     * Entries in the order they appear in the part. The file is opened on subscription and closed when the
+     * entries are consumed, or on error or cancellation. Reads happen on the bounded elastic scheduler.
+     */
+    Flux<Entry> entries() {
+        return Flux.using(this::openAtEntries,
+                parser -> Flux.<Entry>generate(sink -> {
+                    try {
+                        Entry entry = nextEntry(parser);
+                        if (entry == null) {
+                            sink.complete();
+                        } else {
+                            sink.next(entry);
+                        }
+                    } catch (IOException e) {
+                        sink.error(e);
+                    }
+                }),
+                this::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private JsonParser openAtEntries() throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(path.toFile());
+        try {
+            expectObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (ENTRIES.equals(fieldName) && value == JsonToken.START_ARRAY) {
+                    return parser;
+                }
+                parser.skipChildren();
+            }
+            // no entries in this part, the parser is at the end of the document
+            return parser;
+        } catch (IOException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    private Entry nextEntry(JsonParser parser) throws IOException {
+        if (parser.currentToken() == null || parser.getParsingContext().inRoot()) {
+            return null;
+        }
+        JsonToken token = parser.nextToken();
+        while (token == JsonToken.VALUE_NULL) {
+            token = parser.nextToken();
+        }
+        if (token != JsonToken.START_OBJECT) {
+            return null;
+        }
+        return objectMapper.readValue(parser, Entry.class);
+    }
+
+    private void expectObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Data part must be a json object");
+        }
+    }
+
+    private void close(JsonParser parser) {
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+            // nothing left to read from it
+        }
+    }
+}
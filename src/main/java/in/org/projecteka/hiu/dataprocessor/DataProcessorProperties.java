@@ -0,0 +1,52 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "hiu.dataprocessor")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@AllArgsConstructor
+public class DataProcessorProperties {
+    //Number of regular and large data parts processed at a time on a node, their consumers wait for a slot
+    private int maxPartsInFlight;
+    private int maxLargePartsInFlight;
+    //Number of entries of a data part processed concurrently, 1 processes them one after another
+    private int entryParallelism;
+    //Number of health information rows sent to the database in one batch
+    private int insertBatchSize;
+    //Longest a batch waits for more rows before it is saved anyway, 0 waits until it is full or the part is done
+    private int insertFlushIntervalInMillis;
+    //Bounds of the per transaction crypto sessions kept between entries and parts
+    private long cryptoCacheSize;
+    private int cryptoCacheExpiryInMinutes;
+    //Bounds of the per transaction metadata (consent, HIP, consent manager and keys) shared by parts and notifications
+    private long transactionMetadataCacheSize;
+    private int transactionMetadataCacheExpiryInMinutes;
+    //AES-GCM implementation used to decrypt entries, jdk (default) or bouncycastle
+    private String aesGcmProvider;
+    //Entries with at least this many characters of encrypted content are decrypted while parsed, 0 disables it
+    private int streamingDecryptThreshold;
+    //Pooled connections used to download linked attachments, per host and in total
+    private int downloadConnectionsPerHost;
+    private int downloadMaxConnections;
+    //Number of linked attachments downloaded at the same time
+    private int downloadParallelism;
+    private int downloadTimeoutInSeconds;
+    private int downloadMaxRetries;
+    //Linked attachments larger than this are not downloaded
+    private long downloadMaxSizeInBytes;
+    //Attempts to deliver a queued health information notification again before it is dead lettered
+    private int notificationMaxRetries;
+    private int notificationRetryBackoffInSeconds;
+    //Links of entries fetched at the same time from one HIP, and fetched entries allowed to wait for processing
+    private int linkPrefetchConnectionsPerHost;
+    private int linkPrefetchWindow;
+}
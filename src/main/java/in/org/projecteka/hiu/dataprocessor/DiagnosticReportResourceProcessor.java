@@ -3,7 +3,6 @@ package in.org.projecteka.hiu.dataprocessor;
 import in.org.projecteka.hiu.dataprocessor.model.BundleContext;
 import in.org.projecteka.hiu.dataprocessor.model.DataContext;
 import in.org.projecteka.hiu.dataprocessor.model.ProcessContext;
-import in.org.projecteka.hiu.dicomweb.DicomStudy;
 import in.org.projecteka.hiu.dicomweb.OrthancDicomWebServer;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Attachment;
@@ -26,9 +25,16 @@ public class DiagnosticReportResourceProcessor implements HITypeResourceProcesso
     public static final String RADIOLOGY_CATEGORY_CODE = "RAD";
 
     private final OrthancDicomWebServer localDicomWebServer;
+    private final AttachmentDataTypeProcessor attachmentProcessor;
 
     public DiagnosticReportResourceProcessor(OrthancDicomWebServer localDicomWebServer) {
+        this(localDicomWebServer, new AttachmentDataTypeProcessor(new AttachmentDownloader()));
+    }
+
+    public DiagnosticReportResourceProcessor(OrthancDicomWebServer localDicomWebServer,
+                                             AttachmentDataTypeProcessor attachmentProcessor) {
         this.localDicomWebServer = localDicomWebServer;
+        this.attachmentProcessor = attachmentProcessor;
     }
 
     @Override
@@ -59,7 +65,7 @@ public class DiagnosticReportResourceProcessor implements HITypeResourceProcesso
             return;
         }
         DiagnosticReport diagnosticReport = (DiagnosticReport) resource;
-        processPresentedForm(diagnosticReport, dataContext.getLocalStoragePath());
+        processPresentedForm(diagnosticReport, dataContext.getLocalStoragePath(), bundleContext);
         processMedia(diagnosticReport, dataContext.getLocalStoragePath(), bundleContext);
         processResults(diagnosticReport, dataContext, bundleContext, processContext);
         bundleContext.doneProcessing(diagnosticReport);
@@ -126,23 +132,26 @@ public class DiagnosticReportResourceProcessor implements HITypeResourceProcesso
             if (bundleContext.isProcessed(mediaResource)) {
                 continue;
             }
-            processDiagnosticReportMedia(mediaResource, localStoragePath);
+            processDiagnosticReportMedia(mediaResource, localStoragePath, bundleContext);
             bundleContext.doneProcessing(mediaResource);
         }
     }
 
-    private void processDiagnosticReportMedia(Media media, Path localStoragePath) {
-        Path savedAttachmentPath = new AttachmentDataTypeProcessor().process(media.getContent(), localStoragePath);
-        if (isRadiologyFile(media.getContent())) {
-            uploadToLocalDicomServer(media.getContent(), savedAttachmentPath);
+    private void processDiagnosticReportMedia(Media media, Path localStoragePath, BundleContext bundleContext) {
+        var savedAttachment = attachmentProcessor.process(media.getContent(), localStoragePath, bundleContext);
+        if (isRadiologyFile(media.getContent()) && localDicomWebServer.exists()) {
+            bundleContext.awaitBeforeEncoding(savedAttachment
+                    .thenCompose(localDicomWebServer::uploadAsync)
+                    .thenAccept(dicomStudy -> media.getContent()
+                            .setUrl(referenceLocalDicomServerUrl(dicomStudy.getStudyInstanceUid()))));
         }
     }
 
-    private void processPresentedForm(DiagnosticReport diagnosticReport, Path localStorePath) {
+    private void processPresentedForm(DiagnosticReport diagnosticReport, Path localStorePath, BundleContext bundleContext) {
         if (diagnosticReport.hasPresentedForm()) {
             List<Attachment> presentedForm = diagnosticReport.getPresentedForm();
             for (Attachment attachment : presentedForm) {
-                new AttachmentDataTypeProcessor().process(attachment, localStorePath);
+                attachmentProcessor.process(attachment, localStorePath, bundleContext);
             }
         }
     }
@@ -157,13 +166,6 @@ public class DiagnosticReportResourceProcessor implements HITypeResourceProcesso
                 .anyMatch(c -> c.getCode().equalsIgnoreCase(RADIOLOGY_CATEGORY_CODE));
     }
 
-    private void uploadToLocalDicomServer(Attachment content, Path savedFilePath) {
-        if (localDicomWebServer.exists()) {
-            DicomStudy dicomStudy = localDicomWebServer.upload(savedFilePath);
-            content.setUrl(referenceLocalDicomServerUrl(dicomStudy.getStudyInstanceUid()));
-        }
-    }
-
     private String referenceLocalDicomServerUrl(String studyInstanceUid) {
         return String.format("/dicom-server/studies/%s", studyInstanceUid);
     }
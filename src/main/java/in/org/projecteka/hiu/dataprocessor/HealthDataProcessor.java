@@ -2,21 +2,24 @@ package in.org.projecteka.hiu.dataprocessor;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.parser.IParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import in.org.projecteka.hiu.ClientError;
 import in.org.projecteka.hiu.HiuProperties;
 import in.org.projecteka.hiu.clients.HealthInformationClient;
-import in.org.projecteka.hiu.common.Gateway;
-import in.org.projecteka.hiu.consent.ConsentRepository;
 import in.org.projecteka.hiu.dataflow.DataFlowRepository;
 import in.org.projecteka.hiu.dataflow.Decryptor;
 import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
-import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
 import in.org.projecteka.hiu.dataflow.model.Entry;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
 import in.org.projecteka.hiu.dataprocessor.model.BundleContext;
 import in.org.projecteka.hiu.dataprocessor.model.DataAvailableMessage;
 import in.org.projecteka.hiu.dataprocessor.model.DataContext;
+import in.org.projecteka.hiu.dataprocessor.model.EntryOutcome;
+import in.org.projecteka.hiu.dataprocessor.model.EntryStatus;
+import in.org.projecteka.hiu.dataprocessor.model.EntrySummary;
+import in.org.projecteka.hiu.dataprocessor.model.HealthDataRecord;
 import in.org.projecteka.hiu.dataprocessor.model.HealthInfoNotificationRequest;
 import in.org.projecteka.hiu.dataprocessor.model.HiStatus;
 import in.org.projecteka.hiu.dataprocessor.model.Notification;
@@ -29,22 +32,28 @@ import in.org.projecteka.hiu.dataprocessor.model.Type;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Resource;
 import org.hl7.fhir.r4.model.ResourceType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.slf4j.MDC;
 import org.springframework.data.util.Pair;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
-import java.io.InputStream;
-import java.nio.file.Files;
+import javax.annotation.PostConstruct;
+import java.io.Reader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -53,10 +62,11 @@ import java.util.stream.Collectors;
 
 import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
 import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
-import static in.org.projecteka.hiu.common.Constants.CORRELATION_ID;
+import static in.org.projecteka.hiu.ClientError.dbOperationFailure;
 import static in.org.projecteka.hiu.dataflow.model.HealthInfoStatus.ERRORED;
 import static in.org.projecteka.hiu.dataflow.model.HealthInfoStatus.PARTIAL;
 import static java.util.stream.Collectors.joining;
+import static reactor.core.publisher.Mono.defer;
 
 public class HealthDataProcessor {
     public static final String MEDIA_APPLICATION_FHIR_JSON = "application/fhir+json";
@@ -67,119 +77,262 @@ public class HealthDataProcessor {
     private final DataFlowRepository dataFlowRepository;
     private final Decryptor decryptor;
     private final HealthInformationClient healthInformationClient;
-    private final Gateway gateway;
     private final HiuProperties hiuProperties;
-    private final ConsentRepository consentRepository;
-    private final FhirContext fhirContext = FhirContext.forR4();
-    private final List<HITypeResourceProcessor> resourceProcessors = new ArrayList<>();
+    private final TransactionMetadataCache transactionMetadataCache;
+    private final HealthInfoNotifier healthInfoNotifier;
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(WRITE_DATES_AS_TIMESTAMPS, false)
+            .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final FhirContext fhirContext;
+    private final ResourceProcessorRegistry resourceProcessors;
+    private final int entryParallelism;
+    private final int insertBatchSize;
+    private final Duration insertFlushInterval;
+    private final int streamingDecryptThreshold;
+    private final LinkedEntryFetcher linkedEntryFetcher;
 
+    /**
+     * The processor holds no per-message state, a single instance is shared by all consumers of the data flow
+     * process queue. FhirContext is thread-safe and expensive to build, parsers created from it are not
+     * thread-safe and are created per entry. The notifier decides how the gateway hears about processed parts,
+     * directly or through the notification queue. The metadata cache is meant to be shared with it, so parts of a
+     * transaction and their notifications cost a single lookup.
+     */
     public HealthDataProcessor(HealthDataRepository healthDataRepository,
                                DataFlowRepository dataFlowRepository,
                                Decryptor decryptor,
-                               List<HITypeResourceProcessor> hiTypeResourceProcessors,
+                               ResourceProcessorRegistry resourceProcessors,
                                HealthInformationClient healthInformationClient,
-                               Gateway gateway,
                                HiuProperties hiuProperties,
-                               ConsentRepository consentRepository) {
+                               TransactionMetadataCache transactionMetadataCache,
+                               FhirContext fhirContext,
+                               DataProcessorProperties dataProcessorProperties,
+                               HealthInfoNotifier healthInfoNotifier) {
         this.healthDataRepository = healthDataRepository;
         this.dataFlowRepository = dataFlowRepository;
         this.decryptor = decryptor;
         this.healthInformationClient = healthInformationClient;
-        this.resourceProcessors.addAll(hiTypeResourceProcessors);
-        this.gateway = gateway;
+        this.resourceProcessors = resourceProcessors;
+        this.healthInfoNotifier = healthInfoNotifier;
         this.hiuProperties = hiuProperties;
-        this.consentRepository = consentRepository;
+        this.transactionMetadataCache = transactionMetadataCache;
+        this.fhirContext = fhirContext;
+        this.entryParallelism = dataProcessorProperties.getEntryParallelism();
+        this.insertBatchSize = Math.max(dataProcessorProperties.getInsertBatchSize(), 1);
+        this.insertFlushInterval = Duration.ofMillis(dataProcessorProperties.getInsertFlushIntervalInMillis());
+        this.streamingDecryptThreshold = dataProcessorProperties.getStreamingDecryptThreshold();
+        this.linkedEntryFetcher = new LinkedEntryFetcher(healthInformationClient,
+                dataProcessorProperties.getLinkPrefetchConnectionsPerHost(),
+                dataProcessorProperties.getLinkPrefetchWindow());
     }
 
-    public void process(DataAvailableMessage message) {
-        DataContext context = createDataContext(message);
-        if (context != null && context.getNotifiedData() != null) {
-            processEntries(context);
-        } else {
-            // TODO: this should never happen, unless someone sends empty response.
-            // TODO: Noop. this can be a valid scenario.
+    /**
+     * HAPI scans the model classes of a resource type the first time it is parsed or encoded. Round trip a bundle
+     * holding every resource type we process, so the first data part doesn't pay for it.
+     */
+    @PostConstruct
+    public void warmUp() {
+        try {
+            Bundle bundle = new Bundle().setType(Bundle.BundleType.COLLECTION);
+            Arrays.stream(ResourceType.values())
+                    .filter(resourceProcessors::supports)
+                    .map(type -> fhirContext.getResourceDefinition(type.name()).newInstance())
+                    .forEach(resource -> bundle.addEntry().setResource((Resource) resource));
+            IParser jsonParser = fhirContext.newJsonParser();
+            IParser xmlParser = fhirContext.newXmlParser();
+            jsonParser.parseResource(Bundle.class, jsonParser.encodeResourceToString(bundle));
+            xmlParser.parseResource(Bundle.class, xmlParser.encodeResourceToString(bundle));
+            logger.info("FHIR context warmed up with {} resource types", bundle.getEntry().size());
+        } catch (Exception e) {
+            logger.warn("Could not warm up FHIR context", e);
         }
     }
 
-    private void processEntries(DataContext context) {
-        try {
-            logger.info(String.format(
-                    "Received data from HIP for transaction: %s. Number of entries: %d. Trying to process data.",
-                    context.getTransactionId(), context.getNumberOfEntries()));
-            updateDataProcessStatus(context, "", HealthInfoStatus.PROCESSING, null);
-            String transactionId = context.getTransactionId();
-            DataFlowRequestKeyMaterial keyMaterial = blockPublisher(dataFlowRepository.getKeys(transactionId));
-            List<String> dataErrors = new ArrayList<>();
-            List<StatusResponse> statusResponses = new ArrayList<>();
-            context.getNotifiedData().getEntries().forEach(entry -> {
-                var entryToProcess = entry;
-                String dataPartNumber = context.getDataPartNumber();
-                if (!hasContent(entry)) {
-                    var healthInformation = blockPublisher(healthInformationClient.informationFrom(entry.getLink()));
-                    if (healthInformation == null) {
-                        dataErrors.add("Health Information not found");
-                        blockPublisher(healthDataRepository
-                                .insertErrorFor(transactionId, dataPartNumber, entryToProcess.getCareContextReference()));
-                        statusResponses.add(getStatusResponse(entry, HiStatus.ERRORED, COULD_NOT_RECEIVE_DATA));
-                        return;
+    /**
+     * Processes a data part without holding a thread while waiting on the database, HIP links or the gateway.
+     * Only the file read and the decrypt/parse of each entry, which are blocking or CPU bound, are moved to the
+     * bounded elastic scheduler. On its last attempt a part that fails is not delivered again.
+     */
+    public Mono<Void> processAsync(DataAvailableMessage message, boolean lastAttempt) {
+        return createDataContext(message)
+                .filter(context -> context.getNotifiedData() != null)
+                .flatMap(context -> processEntries(context, lastAttempt));
+    }
+
+    /**
+     * A part whose data can't be processed is marked as ERRORED and completes, there is nothing to gain from
+     * processing it again, so its checkpoint is removed. Any other failure, the database, the gateway or the disk,
+     * is passed on. The part is then delivered again and resumes from its checkpoint, so it stays PROCESSING,
+     * unless this was its last attempt, it is then marked as ERRORED.
+     */
+    private Mono<Void> processEntries(DataContext context, boolean lastAttempt) {
+        logger.info(String.format(
+                "Received data from HIP for transaction: %s. Number of entries: %d. Trying to process data.",
+                context.getTransactionId(), context.getNumberOfEntries()));
+        return updateDataProcessStatus(context, "", HealthInfoStatus.PROCESSING, null)
+                .then(defer(() -> Mono.justOrEmpty(context.getSavedKeyMaterial())))
+                .switchIfEmpty(defer(() -> Mono.error(dbOperationFailure("Failed to fetch encryption keys"))))
+                .flatMap(keyMaterial -> Mono.fromCallable(() -> PartCheckpoint.open(context.getDataFilePath(), objectMapper))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(checkpoint -> healthDataRepository.startDataPart(context.getTransactionId(),
+                                        context.getDataPartNumber(),
+                                        checkpoint.size())
+                                .filter(resumable -> !resumable)
+                                .flatMap(resumable -> Mono.fromRunnable(checkpoint::restart)
+                                        .subscribeOn(Schedulers.boundedElastic()))
+                                .then(processAll(context, keyMaterial, checkpoint))
+                                .flatMap(savedEntries -> completePart(context, checkpoint, savedEntries))
+                                .onErrorResume(HealthDataProcessor::isDataError,
+                                        ex -> Mono.fromRunnable(checkpoint::delete)
+                                                .subscribeOn(Schedulers.boundedElastic())
+                                                .then(Mono.error(ex)))))
+                .onErrorResume(HealthDataProcessor::isDataError, ex -> {
+                    logger.error("Error occurred while processing data from HIP. Transaction id: {}.",
+                            context.getTransactionId());
+                    logger.error(ex.getMessage(), ex);
+                    return updateDataProcessStatus(context, messageOf(ex), ERRORED, context.latestResourceDate());
+                })
+                .onErrorResume(ex -> {
+                    if (!lastAttempt) {
+                        logger.error("Could not process data from HIP, it will be processed again. " +
+                                "Transaction id: {}.", context.getTransactionId());
+                        logger.error(ex.getMessage(), ex);
+                        return Mono.error(ex);
                     }
-                    entryToProcess = Entry.builder()
-                            .content(healthInformation.getContent())
-                            .checksum(entry.getChecksum())
-                            .media(entry.getMedia())
-                            .careContextReference(entry.getCareContextReference())
-                            .build();
-                }
-                var result = processEntryContent(context, entryToProcess, keyMaterial);
-                if (result.hasErrors()) {
-                    dataErrors.addAll(result.getErrors());
-                    blockPublisher(healthDataRepository
-                            .insertErrorFor(transactionId, dataPartNumber, entryToProcess.getCareContextReference()));
-                    statusResponses.add(getStatusResponse(entry, HiStatus.ERRORED, COULD_NOT_RECEIVE_DATA));
-                    return;
-                }
-                context.addTrackedResources(result.getTrackedResources());
-                Optional<Pair<String, String>> originIdAndName = identifyOrigin(result.getOrigins());
-                String originId = originIdAndName.isPresent() ? originIdAndName.get().getFirst() : context.getHipId();
-                blockPublisher(healthDataRepository.insertDataFor(transactionId,
-                        dataPartNumber,
-                        result.getResource(),
-                        result.latestResourceDate(),
-                        entryToProcess.getCareContextReference(),
-                        result.getUniqueResourceId(),
-                        result.getDocumentType(),
-                        originId));
-                statusResponses.add(getStatusResponse(entry, HiStatus.OK, "Data received successfully"));
-            });
-
-            var status = dataErrors.size() == context.getNumberOfEntries() ? HealthInfoStatus.ERRORED : PARTIAL;
-
-            if (!dataErrors.isEmpty()) {
-                var errors = dataErrors.stream().map("[ERROR]"::concat).collect(joining());
-                var allErrors = "[ERROR]".concat(errors);
-                logger.error("Error occurred while processing data from HIP. Transaction id: {}. Errors: {}",
-                        context.getTransactionId(), allErrors);
-                updateDataProcessStatus(context, allErrors, status, context.latestResourceDate());
-                notifyHealthInfoStatus(context, statusResponses, SessionStatus.FAILED);
-            } else {
-                updateDataProcessStatus(context, "", HealthInfoStatus.SUCCEEDED, context.latestResourceDate());
-                notifyHealthInfoStatus(context, statusResponses, SessionStatus.TRANSFERRED);
-            }
-        } catch (Exception ex) {
-            logger.error("Error occurred while processing data from HIP. Transaction id: {}.", context.getTransactionId());
-            logger.error(ex.getMessage(), ex);
-            updateDataProcessStatus(context, ex.getMessage(), ERRORED, context.latestResourceDate());
+                    logger.error("Could not process data from HIP. Transaction id: {}.", context.getTransactionId());
+                    logger.error(ex.getMessage(), ex);
+                    return updateDataProcessStatus(context, messageOf(ex), ERRORED, context.latestResourceDate())
+                            .onErrorResume(statusNotUpdated -> Mono.empty())
+                            .then(Mono.error(ex));
+                });
+    }
+
+    private static boolean isDataError(Throwable error) {
+        return error instanceof JsonProcessingException
+                || (error instanceof ClientError && ((ClientError) error).getHttpStatus().is4xxClientError());
+    }
+
+    private static String messageOf(Throwable error) {
+        if (error instanceof ClientError) {
+            return ((ClientError) error).getError().getError().getMessage();
         }
+        return error.getMessage();
     }
 
-    private <T> T blockPublisher(Mono<T> publisher) {
-        // block() clears the context, we should put correlationId back again in context.
-        // https://github.com/reactor/reactor-core/issues/1667
+    private Mono<Void> completePart(DataContext context, PartCheckpoint checkpoint, List<EntrySummary> savedEntries) {
+        List<String> dataErrors = new ArrayList<>();
+        List<StatusResponse> statusResponses = new ArrayList<>();
+        savedEntries.forEach(savedEntry -> {
+            dataErrors.addAll(savedEntry.getErrors());
+            statusResponses.add(savedEntry.getStatusResponse());
+            context.addResourceDate(savedEntry.getLatestResourceDate());
+        });
+
+        var status = dataErrors.size() == context.getNumberOfEntries() ? HealthInfoStatus.ERRORED : PARTIAL;
 
-        String correlationId = MDC.get(CORRELATION_ID);
-        T result = publisher.block();
-        MDC.put(CORRELATION_ID, correlationId);
-        return result;
+        if (!dataErrors.isEmpty()) {
+            var errors = dataErrors.stream().map("[ERROR]"::concat).collect(joining());
+            var allErrors = "[ERROR]".concat(errors);
+            logger.error("Error occurred while processing data from HIP. Transaction id: {}. Errors: {}",
+                    context.getTransactionId(), allErrors);
+            return completeDataPart(context, checkpoint, status, allErrors, statusResponses, SessionStatus.FAILED);
+        }
+        return completeDataPart(context,
+                checkpoint,
+                HealthInfoStatus.SUCCEEDED,
+                "",
+                statusResponses,
+                SessionStatus.TRANSFERRED);
+    }
+
+    /**
+     * Entries of a part are independent of each other, up to entry parallelism of them are in flight at a time.
+     * Entries are read from the part file as they are taken up, not all at once, and linked entries are taken up
+     * as their content arrives. Records are saved insertBatchSize at a time as entries complete, or what there is
+     * of a batch once insertFlushInterval passed, and each saved batch is checkpointed, so a part holds at most
+     * three batches of records in memory, one filling, one waiting and one being saved, whatever its size. Only the status of saved entries is kept until the part completes, in the order
+     * of the entries in the part. Entries saved by an earlier delivery of the part are not processed again.
+     * Linked entries fetched but not processed yet are removed however the part ends.
+     */
+    private Mono<List<EntrySummary>> processAll(DataContext context,
+                                                DataFlowRequestKeyMaterial keyMaterial,
+                                                PartCheckpoint checkpoint) {
+        var entries = new DataPartFile(context.getDataFilePath(), objectMapper).entries()
+                .index()
+                .filter(checkpoint::isPending);
+        return Mono.usingWhen(linkedEntryFetcher.openDirectory(context.getDataFilePath()),
+                linksDirectory -> linkedEntryFetcher.prefetch(entries, linksDirectory)
+                        .flatMap(indexed -> processEntry(context, indexed.getT2(), keyMaterial)
+                                        .map(outcome -> Tuples.of(indexed.getT1(), outcome)),
+                                Math.max(entryParallelism, 1))
+                        .transform(outcomes -> Batches.of(outcomes, insertBatchSize, insertFlushInterval))
+                        .concatMap(batch -> saveEntries(context, checkpoint, batch), 1)
+                        .concatWith(Flux.defer(() -> Flux.fromIterable(checkpoint.resumed())))
+                        .collectSortedList(Comparator.comparingLong(EntrySummary::getIndex)),
+                linkedEntryFetcher::closeDirectory);
+    }
+
+    private Flux<EntrySummary> saveEntries(DataContext context,
+                                           PartCheckpoint checkpoint,
+                                           List<Tuple2<Long, EntryOutcome>> batch) {
+        List<HealthDataRecord> records = batch.stream()
+                .map(indexed -> indexed.getT2().getRecord())
+                .collect(Collectors.toList());
+        List<EntrySummary> savedEntries = batch.stream()
+                .map(indexed -> indexed.getT2().summaryAt(indexed.getT1()))
+                .collect(Collectors.toList());
+        return healthDataRepository.saveEntries(context.getTransactionId(), context.getDataPartNumber(), records)
+                .then(Mono.fromRunnable(() -> checkpoint.record(savedEntries)).subscribeOn(Schedulers.boundedElastic()))
+                .thenMany(Flux.fromIterable(savedEntries));
+    }
+
+    private Mono<EntryOutcome> processEntry(DataContext context,
+                                            LinkedEntryFetcher.FetchedEntry fetchedEntry,
+                                            DataFlowRequestKeyMaterial keyMaterial) {
+        Entry entry = fetchedEntry.getEntry();
+        if (!fetchedEntry.isFetched()) {
+            return processContent(context, entry, entry, keyMaterial);
+        }
+        return Mono.fromCallable(fetchedEntry::read)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::justOrEmpty)
+                .map(healthInformation -> Entry.builder()
+                        .content(healthInformation.getContent())
+                        .checksum(entry.getChecksum())
+                        .media(entry.getMedia())
+                        .careContextReference(entry.getCareContextReference())
+                        .build())
+                .flatMap(entryToProcess -> processContent(context, entry, entryToProcess, keyMaterial))
+                .switchIfEmpty(defer(() -> Mono.just(EntryOutcome.failed(List.of("Health Information not found"),
+                        getStatusResponse(entry, HiStatus.ERRORED, COULD_NOT_RECEIVE_DATA),
+                        entry.getCareContextReference()))));
+    }
+
+    private Mono<EntryOutcome> processContent(DataContext context,
+                                              Entry entry,
+                                              Entry entryToProcess,
+                                              DataFlowRequestKeyMaterial keyMaterial) {
+        return Mono.fromCallable(() -> {
+            var result = processEntryContent(context, entryToProcess, keyMaterial);
+            if (result.hasErrors()) {
+                return EntryOutcome.failed(result.getErrors(),
+                        getStatusResponse(entry, HiStatus.ERRORED, COULD_NOT_RECEIVE_DATA),
+                        entryToProcess.getCareContextReference());
+            }
+            Optional<Pair<String, String>> originIdAndName = identifyOrigin(result.getOrigins());
+            String originId = originIdAndName.isPresent() ? originIdAndName.get().getFirst() : context.getHipId();
+            return EntryOutcome.succeeded(getStatusResponse(entry, HiStatus.OK, "Data received successfully"),
+                    HealthDataRecord.builder()
+                            .resource(result.getResource())
+                            .entryStatus(EntryStatus.SUCCEEDED)
+                            .latestResourceDate(result.latestResourceDate())
+                            .careContextReference(entryToProcess.getCareContextReference())
+                            .docId(result.getUniqueResourceId())
+                            .docType(result.getDocumentType())
+                            .docOrigin(originId)
+                            .build());
+        }).subscribeOn(Schedulers.boundedElastic());
     }
 
     private StatusResponse getStatusResponse(Entry entry, HiStatus hiStatus, String msg) {
@@ -190,14 +343,12 @@ public class HealthDataProcessor {
                 .build();
     }
 
-    private void notifyHealthInfoStatus(DataContext context,
-                                        List<StatusResponse> statusResponses,
-                                        SessionStatus sessionStatus) {
+    private Mono<Void> notifyHealthInfoStatus(DataContext context,
+                                              List<StatusResponse> statusResponses,
+                                              SessionStatus sessionStatus) {
         HealthInfoNotificationRequest healthInfoNotificationRequest =
                 getHealthInfoNotificationRequest(context, statusResponses, sessionStatus);
-        String token = blockPublisher(gateway.token());
-        String consentManagerId = fetchCMId(healthInfoNotificationRequest.getNotification().getConsentId());
-        blockPublisher(healthInformationClient.notifyHealthInfo(healthInfoNotificationRequest, token, consentManagerId));
+        return healthInfoNotifier.send(healthInfoNotificationRequest);
     }
 
     private HealthInfoNotificationRequest getHealthInfoNotificationRequest(DataContext context,
@@ -223,41 +374,67 @@ public class HealthDataProcessor {
                 .build();
     }
 
-    private String fetchCMId(String consentId) {
-        return blockPublisher(consentRepository.getConsentMangerId(consentId));
+    /**
+     * The status is saved and the gateway notified before the checkpoint is removed. The notification is not part
+     * of the transaction of the status. If it can't be sent, or the consumer dies before sending it, the part is
+     * delivered again and resumes from its checkpoint, with all of its entries saved, up to sending it again.
+     */
+    private Mono<Void> completeDataPart(DataContext context,
+                                        PartCheckpoint checkpoint,
+                                        HealthInfoStatus status,
+                                        String allErrors,
+                                        List<StatusResponse> statusResponses,
+                                        SessionStatus sessionStatus) {
+        return updateDataProcessStatus(context, allErrors, status, context.latestResourceDate())
+                .then(defer(() -> notifyHealthInfoStatus(context, statusResponses, sessionStatus)))
+                .then(Mono.fromRunnable(checkpoint::delete).subscribeOn(Schedulers.boundedElastic()))
+                .then();
     }
 
-    private void updateDataProcessStatus(DataContext context, String allErrors, HealthInfoStatus status, LocalDateTime latestResourceDate) {
-        blockPublisher(dataFlowRepository.updateDataFlowWithStatus(context.getTransactionId(),
+    private Mono<Void> updateDataProcessStatus(DataContext context,
+                                               String allErrors,
+                                               HealthInfoStatus status,
+                                               LocalDateTime latestResourceDate) {
+        return dataFlowRepository.updateDataFlowWithStatus(context.getTransactionId(),
                 context.getDataPartNumber(),
                 allErrors,
                 status,
-                latestResourceDate));
+                latestResourceDate);
     }
 
-    private DataContext createDataContext(DataAvailableMessage message) {
+    private Mono<DataContext> createDataContext(DataAvailableMessage message) {
         Path dataFilePath = Paths.get(message.getPathToFile());
-        try (InputStream inputStream = Files.newInputStream(dataFilePath)) {
-            var objectMapper = new ObjectMapper()
-                    .registerModule(new JavaTimeModule())
-                    .configure(WRITE_DATES_AS_TIMESTAMPS, false)
-                    .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-            DataNotificationRequest dataNotificationRequest = objectMapper.readValue(inputStream,
-                    DataNotificationRequest.class);
-            String consentId = blockPublisher(dataFlowRepository.getConsentId(dataNotificationRequest.getTransactionId()));
-            String hipId = blockPublisher(consentRepository.getHipId(consentId));
-            return DataContext.builder()
-                    .notifiedData(dataNotificationRequest)
-                    .dataFilePath(dataFilePath)
-                    .dataPartNumber(message.getPartNumber())
-                    .trackedResources(new ArrayList<>())
-                    .hipId(hipId)
-                    .consentId(consentId)
-                    .build();
-        } catch (Exception e) {
-            logger.error("Could not create context from data file path", e);
-            throw new RuntimeException(e);
+        return Mono.fromCallable(() -> new DataPartFile(dataFilePath, objectMapper).readHeader())
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(header -> transactionMetadataCache
+                        .metadataFor(header.getNotification().getTransactionId())
+                        .map(metadata -> DataContext.builder()
+                                .notifiedData(header.getNotification())
+                                .numberOfEntries(header.getNumberOfEntries())
+                                .dataFilePath(dataFilePath)
+                                .dataPartNumber(message.getPartNumber())
+                                .hipId(metadata.getHipId())
+                                .consentId(metadata.getConsentId())
+                                .savedKeyMaterial(metadata.getKeyMaterial())
+                                .build()))
+                .doOnError(e -> logger.error("Could not create context from data file path", e));
+    }
+
+    /**
+     * Large entries are decrypted while the parser reads them, so neither the decoded cipher text nor the
+     * decrypted document is held in memory next to the parsed bundle. Smaller ones are parsed from the plain text
+     * buffer they are decrypted into.
+     */
+    private Bundle decryptBundle(DataContext context,
+                                 Entry entry,
+                                 DataFlowRequestKeyMaterial keyMaterial,
+                                 IParser parser) throws Exception {
+        if (streamingDecryptThreshold <= 0 || entry.getContent().length() < streamingDecryptThreshold) {
+            return decryptor.decrypt(context.getKeyMaterial(), keyMaterial, entry.getContent(),
+                    content -> parser.parseResource(Bundle.class, content));
+        }
+        try (Reader content = decryptor.decryptingReader(context.getKeyMaterial(), keyMaterial, entry.getContent())) {
+            return parser.parseResource(Bundle.class, content);
         }
     }
 
@@ -269,15 +446,14 @@ public class HealthDataProcessor {
 
         return mayBeParser.map(parser -> {
             ProcessedEntry result = new ProcessedEntry();
-            String decryptedContent;
+            Bundle bundle;
             try {
-                decryptedContent = decryptor.decrypt(context.getKeyMaterial(), keyMaterial, entry.getContent());
+                bundle = decryptBundle(context, entry, keyMaterial, parser);
             } catch (Exception e) {
                 logger.error("Error while decrypting {exception}", e);
                 result.addError("Could not read encrypted content from file");
                 return result;
             }
-            Bundle bundle = parser.parseResource(Bundle.class, decryptedContent);
             if (!isValidBundleType(bundle)) {
                 result.addError("Can not process entry content, invalid envelope." +
                         "Entry content is either not a FHIR Bundle type COLLECTION or DOCUMENT. " +
@@ -296,6 +472,7 @@ public class HealthDataProcessor {
                         processor.process(bundleEntry.getResource(), context, bundleContext, null);
                     }
                 });
+                bundleContext.completePendingWork();
                 result.setEncoded(parser.encodeResourceToString(bundle));
                 result.setUniqueResourceId(bundleContext.getBundleUniqueId());
                 result.setDocumentType(bundleContext.getDocumentType());
@@ -316,7 +493,7 @@ public class HealthDataProcessor {
     }
 
     private HITypeResourceProcessor identifyResourceProcessor(ResourceType resourceType) {
-        return resourceProcessors.stream().filter(p -> p.supports(resourceType)).findAny().orElse(null);
+        return resourceProcessors.forType(resourceType);
     }
 
     private boolean isValidBundleType(Bundle bundle) {
@@ -344,10 +521,6 @@ public class HealthDataProcessor {
         return Optional.empty();
     }
 
-    private boolean hasContent(Entry entry) {
-        return (entry.getContent() != null) && !entry.getContent().isBlank();
-    }
-
     private Optional<Identifier> getAffinityDomainIdentifier(List<String> domains, Organization organization) {
         if (!organization.hasIdentifier()) {
             return Optional.empty();
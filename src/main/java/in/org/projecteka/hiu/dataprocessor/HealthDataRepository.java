@@ -1,6 +1,7 @@
 package in.org.projecteka.hiu.dataprocessor;
 
-import in.org.projecteka.hiu.dataprocessor.model.EntryStatus;
+import in.org.projecteka.hiu.dataprocessor.model.HealthDataRecord;
+import io.vertx.core.Future;
 import io.vertx.pgclient.PgPool;
 import io.vertx.sqlclient.Tuple;
 import lombok.AllArgsConstructor;
@@ -8,10 +9,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
 
-import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 
-import static in.org.projecteka.hiu.dataprocessor.model.EntryStatus.ERRORED;
-import static in.org.projecteka.hiu.dataprocessor.model.EntryStatus.SUCCEEDED;
+import static in.org.projecteka.hiu.ClientError.dbOperationFailure;
 
 @AllArgsConstructor
 public class HealthDataRepository {
@@ -23,40 +24,59 @@ public class HealthDataRepository {
             = "INSERT INTO health_information " +
             "(transaction_id, part_number, data, status, latest_res_date, care_context_reference, doc_origin, doc_id, doc_type) " +
             "VALUES ($1, $2, $3, $4, $5, $6, $7, $8, $9)";
+    private static final String COUNT_HEALTH_DATA_OF_PART = "SELECT COUNT(*) FROM health_information " +
+            "WHERE transaction_id = $1 AND part_number = $2";
+    private static final String DELETE_HEALTH_DATA_OF_PART = "DELETE FROM health_information " +
+            "WHERE transaction_id = $1 AND part_number = $2";
 
     private final PgPool readWriteClient;
 
-    private Mono<Void> insertHealthData(String transactionId,
-                                        String dataPartNumber,
-                                        String resource,
-                                        EntryStatus entryStatus, LocalDateTime latestResourceDate, String careContextReference,
-                                        String docOrigin, String docId, String docType) {
-        return Mono.create(monoSink ->
-                readWriteClient.preparedQuery(INSERT_HEALTH_DATA)
-                        .execute(Tuple.of(transactionId, dataPartNumber, resource,
-                                entryStatus.toString(), latestResourceDate, careContextReference,
-                                docOrigin, docId, docType),
-                                handler -> {
-                                    if (handler.failed()) {
-                                        logger.error(handler.cause().getMessage(), handler.cause());
-                                        monoSink.error(new Exception("Failed to insert health information"));
-                                        return;
-                                    }
-                                    monoSink.success();
-                                }));
+    /**
+     * Entries of a part are saved as they are processed, a batch at a time. A part delivered again keeps its rows
+     * when there are exactly as many as the savedEntries its checkpoint confirms. Otherwise a batch was saved but
+     * not checkpointed, and as its rows can't be told apart from the others all rows of the part are removed;
+     * false is returned, and the part is processed again from its first entry.
+     */
+    public Mono<Boolean> startDataPart(String transactionId, String dataPartNumber, int savedEntries) {
+        var part = Tuple.of(transactionId, dataPartNumber);
+        return Mono.create(monoSink -> readWriteClient.withTransaction(connection -> connection
+                        .preparedQuery(COUNT_HEALTH_DATA_OF_PART)
+                        .execute(part)
+                        .compose(counted -> {
+                            if (counted.iterator().next().getLong("count") == savedEntries) {
+                                return Future.succeededFuture(true);
+                            }
+                            return connection.preparedQuery(DELETE_HEALTH_DATA_OF_PART).execute(part).map(false);
+                        }),
+                handler -> {
+                    if (handler.failed()) {
+                        logger.error(handler.cause().getMessage(), handler.cause());
+                        monoSink.error(dbOperationFailure("Failed to clear health information of part"));
+                        return;
+                    }
+                    monoSink.success(handler.result());
+                }));
     }
 
-    public Mono<Void> insertErrorFor(String transactionId, String dataPartNumber, String careContextReference) {
-        return insertHealthData(transactionId, dataPartNumber, "",
-                ERRORED, null, careContextReference,
-                null, null, null);
-    }
-
-    public Mono<Void> insertDataFor(String transactionId, String dataPartNumber,
-                                    String resource, LocalDateTime latestResourceDate, String careContextReference,
-                                    String resourceId, String docType, String docOrigin) {
-        return insertHealthData(transactionId, dataPartNumber, resource,
-                SUCCEEDED, latestResourceDate, careContextReference,
-                docOrigin, resourceId, docType);
+    /**
+     * Saves a batch of entries in one round trip instead of one each. The rows of a part are saved batch by batch
+     * as its entries complete, its status is saved apart once the part is done.
+     */
+    public Mono<Void> saveEntries(String transactionId, String dataPartNumber, List<HealthDataRecord> records) {
+        List<Tuple> rows = records.stream()
+                .map(record -> Tuple.of(transactionId, dataPartNumber, record.getResource(),
+                        record.getEntryStatus().toString(), record.getLatestResourceDate(),
+                        record.getCareContextReference(), record.getDocOrigin(), record.getDocId(),
+                        record.getDocType()))
+                .collect(Collectors.toList());
+        return Mono.create(monoSink -> readWriteClient.preparedQuery(INSERT_HEALTH_DATA)
+                .executeBatch(rows, handler -> {
+                    if (handler.failed()) {
+                        logger.error(handler.cause().getMessage(), handler.cause());
+                        monoSink.error(dbOperationFailure("Failed to save health information"));
+                        return;
+                    }
+                    monoSink.success();
+                }));
     }
 }
@@ -0,0 +1,48 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import in.org.projecteka.hiu.clients.HealthInformationClient;
+import in.org.projecteka.hiu.common.Gateway;
+import in.org.projecteka.hiu.dataprocessor.model.HealthInfoNotificationRequest;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Sends the notification to the gateway, retrying with a backoff when the gateway or the lookups fail. A
+ * notification for a transaction without a consent manager fails right away, so it is dead lettered instead of
+ * being dropped.
+ */
+@AllArgsConstructor
+public class HealthInfoNotificationDispatcher implements HealthInfoNotifier {
+    private static final Logger logger = LoggerFactory.getLogger(HealthInfoNotificationDispatcher.class);
+
+    private final Gateway gateway;
+    private final TransactionMetadataCache transactionMetadataCache;
+    private final HealthInformationClient healthInformationClient;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+
+    @Override
+    public Mono<Void> send(HealthInfoNotificationRequest notificationRequest) {
+        String transactionId = notificationRequest.getNotification().getTransactionId();
+        Mono<Void> notification = Mono.defer(() -> Mono.zip(gateway.token(),
+                transactionMetadataCache.metadataFor(transactionId)
+                        .flatMap(metadata -> Mono.justOrEmpty(metadata.getConsentManagerId()))
+                        .switchIfEmpty(Mono.error(() -> new IllegalStateException(String.format(
+                                "No consent manager to notify for transaction %s", transactionId)))))
+                .flatMap(tokenAndCmId -> healthInformationClient.notifyHealthInfo(notificationRequest,
+                        tokenAndCmId.getT1(),
+                        tokenAndCmId.getT2())));
+        if (maxRetries <= 0) {
+            return notification;
+        }
+        return notification.retryWhen(Retry.backoff(maxRetries, retryBackoff)
+                .filter(error -> !(error instanceof IllegalStateException))
+                .doBeforeRetry(signal -> logger.warn("Retrying health information notification {}: {}",
+                        notificationRequest.getRequestId(), signal.failure().getMessage())));
+    }
+}
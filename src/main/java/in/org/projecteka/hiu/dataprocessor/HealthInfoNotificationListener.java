@@ -0,0 +1,104 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import in.org.projecteka.hiu.DestinationsConfig;
+import in.org.projecteka.hiu.MessageListenerContainerFactory;
+import in.org.projecteka.hiu.common.Constants;
+import in.org.projecteka.hiu.common.RabbitQueueNames;
+import in.org.projecteka.hiu.common.TraceableMessage;
+import in.org.projecteka.hiu.dataprocessor.model.HealthInfoNotificationRequest;
+import lombok.AllArgsConstructor;
+import lombok.SneakyThrows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static in.org.projecteka.hiu.ClientError.queueNotFound;
+import static in.org.projecteka.hiu.common.Constants.CORRELATION_ID;
+import static in.org.projecteka.hiu.common.Serializer.to;
+
+/**
+ * Delivers the queued health information notifications to the gateway. Notifications are acknowledged once the
+ * gateway accepts them, prefetch and consumers of the queue bound how many are in flight. Notifications the
+ * gateway still refuses after the retries go to the dead letter queue.
+ */
+@AllArgsConstructor
+public class HealthInfoNotificationListener {
+    private final MessageListenerContainerFactory messageListenerContainerFactory;
+    private final DestinationsConfig destinationsConfig;
+    private final HealthInfoNotificationDispatcher dispatcher;
+    private final RabbitQueueNames queueNames;
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthInfoNotificationListener.class);
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(WRITE_DATES_AS_TIMESTAMPS, false)
+            .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @PostConstruct
+    @SneakyThrows
+    public void subscribe() {
+        DestinationsConfig.DestinationInfo destinationInfo = destinationsConfig
+                .getQueues()
+                .get(queueNames.getHealthInfoNotificationQueue());
+        if (destinationInfo == null) {
+            throw queueNotFound();
+        }
+
+        MessageListenerContainer mlc = messageListenerContainerFactory
+                .createMessageListenerContainer(destinationInfo.getRoutingKey(), AcknowledgeMode.MANUAL);
+
+        ChannelAwareMessageListener messageListener = (message, channel) -> {
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            HealthInfoNotificationRequest notificationRequest;
+            String correlationId;
+            try {
+                var traceableMessage = to(message.getBody(), TraceableMessage.class);
+                notificationRequest = mapper.convertValue(traceableMessage.get().getMessage(),
+                        HealthInfoNotificationRequest.class);
+                correlationId = traceableMessage.get().getCorrelationId();
+            } catch (Exception exception) {
+                logger.error(exception.toString());
+                channel.basicReject(deliveryTag, false);
+                return;
+            }
+            MDC.put(Constants.CORRELATION_ID, correlationId);
+            logger.info("Notifying health information status for transaction id : {}",
+                    notificationRequest.getNotification().getTransactionId());
+            dispatcher.send(notificationRequest)
+                    .subscriberContext(ctx -> correlationId == null ? ctx : ctx.put(CORRELATION_ID, correlationId))
+                    .subscribe(nothing -> { },
+                            exception -> {
+                                logger.error("Could not notify health information status", exception);
+                                acknowledge(() -> channel.basicReject(deliveryTag, false));
+                            },
+                            () -> acknowledge(() -> channel.basicAck(deliveryTag, false)));
+            MDC.clear();
+        };
+        mlc.setupMessageListener(messageListener);
+        mlc.start();
+    }
+
+    private void acknowledge(Acknowledgement acknowledgement) {
+        try {
+            acknowledgement.send();
+        } catch (IOException exception) {
+            // the channel is gone, the broker redelivers the notification to another consumer
+            logger.error("Could not acknowledge health information notification", exception);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Acknowledgement {
+        void send() throws IOException;
+    }
+}
@@ -0,0 +1,50 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import in.org.projecteka.hiu.DestinationsConfig;
+import in.org.projecteka.hiu.common.RabbitQueueNames;
+import in.org.projecteka.hiu.common.TraceableMessage;
+import in.org.projecteka.hiu.dataprocessor.model.HealthInfoNotificationRequest;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.amqp.core.AmqpTemplate;
+import reactor.core.publisher.Mono;
+
+import static in.org.projecteka.hiu.ClientError.queueNotFound;
+import static in.org.projecteka.hiu.common.Constants.CORRELATION_ID;
+
+/**
+ * Queues the notification on a durable queue instead of calling the gateway, the
+ * {@link HealthInfoNotificationListener} delivers it. Data processing does not wait on the gateway, and a
+ * notification that can not be delivered is dead lettered rather than lost.
+ */
+@AllArgsConstructor
+public class HealthInfoNotificationPublisher implements HealthInfoNotifier {
+    private static final Logger logger = LoggerFactory.getLogger(HealthInfoNotificationPublisher.class);
+    private final AmqpTemplate amqpTemplate;
+    private final DestinationsConfig destinationsConfig;
+    private final RabbitQueueNames queueNames;
+
+    @Override
+    public Mono<Void> send(HealthInfoNotificationRequest notificationRequest) {
+        return Mono.defer(() -> {
+            DestinationsConfig.DestinationInfo destinationInfo =
+                    destinationsConfig.getQueues().get(queueNames.getHealthInfoNotificationQueue());
+            if (destinationInfo == null) {
+                logger.info(queueNames.getHealthInfoNotificationQueue() + " not found");
+                return Mono.error(queueNotFound());
+            }
+            TraceableMessage traceableMessage = TraceableMessage.builder()
+                    .correlationId(MDC.get(CORRELATION_ID))
+                    .message(notificationRequest)
+                    .build();
+            amqpTemplate.convertAndSend(destinationInfo.getExchange(),
+                    destinationInfo.getRoutingKey(),
+                    traceableMessage);
+            logger.info("Queued health information notification for transaction id : {}",
+                    notificationRequest.getNotification().getTransactionId());
+            return Mono.empty();
+        });
+    }
+}
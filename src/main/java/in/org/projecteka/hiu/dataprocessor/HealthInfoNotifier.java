@@ -0,0 +1,11 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import in.org.projecteka.hiu.dataprocessor.model.HealthInfoNotificationRequest;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lets the gateway know the outcome of processing a data part.
+ */
+public interface HealthInfoNotifier {
+    Mono<Void> send(HealthInfoNotificationRequest notificationRequest);
+}
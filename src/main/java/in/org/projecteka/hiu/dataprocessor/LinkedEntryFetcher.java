@@ -0,0 +1,139 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.org.projecteka.hiu.clients.HealthInformation;
+import in.org.projecteka.hiu.clients.HealthInformationClient;
+import in.org.projecteka.hiu.dataflow.model.Entry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Entries that carry a link instead of their content are fetched as soon as the part is opened, not when their
+ * turn to be processed comes. Up to connectionsPerHost links of a HIP are fetched at a time, each response is
+ * written to a file next to the part, and entries are handed on in the order their content arrives. At most
+ * window entries wait to be processed, so inline entries read ahead of the fetches don't pile up in memory.
+ */
+class LinkedEntryFetcher {
+    private static final String INLINE = "";
+    private static final String LINKS_SUFFIX = ".links";
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final HealthInformationClient healthInformationClient;
+    private final int connectionsPerHost;
+    private final int window;
+
+    LinkedEntryFetcher(HealthInformationClient healthInformationClient, int connectionsPerHost, int window) {
+        this.healthInformationClient = healthInformationClient;
+        this.connectionsPerHost = Math.max(connectionsPerHost, 1);
+        this.window = Math.max(window, 1);
+    }
+
+    /**
+     * Linked entries of a part are fetched into a directory of its own, next to the part file. The directory is
+     * meant to be closed once the part is processed, failed or cancelled, so entries fetched but never read don't
+     * stay behind.
+     */
+    Mono<Path> openDirectory(Path dataFilePath) {
+        return Mono.fromCallable(() -> Files.createDirectories(
+                        dataFilePath.resolveSibling(dataFilePath.getFileName() + LINKS_SUFFIX)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Removes the directory with the fetched entries left in it.
+     */
+    Mono<Void> closeDirectory(Path directory) {
+        return Mono.fromRunnable(() -> {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(LinkedEntryFetcher::deleteQuietly);
+            } catch (IOException ignored) {
+                // the directory is in the transaction directory, it goes with it
+            }
+        }).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    /**
+     * Takes the entries with their position in the part and emits them in the same way, fetched ones in the
+     * order they arrive.
+     */
+    Flux<Tuple2<Long, FetchedEntry>> prefetch(Flux<Tuple2<Long, Entry>> entries, Path directory) {
+        return entries
+                .groupBy(indexed -> hostOf(indexed.getT2()), window)
+                .flatMap(group -> INLINE.equals(group.key())
+                                  ? group.map(indexed -> Tuples.of(indexed.getT1(),
+                                        new FetchedEntry(indexed.getT2(), null)))
+                                  : group.flatMap(indexed -> fetch(indexed.getT2(), directory)
+                                                .map(fetched -> Tuples.of(indexed.getT1(), fetched)),
+                                        connectionsPerHost),
+                        Integer.MAX_VALUE)
+                .limitRate(window);
+    }
+
+    private Mono<FetchedEntry> fetch(Entry entry, Path directory) {
+        return Mono.fromCallable(() -> Files.createTempFile(directory, "entry-", ".json"))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(file -> healthInformationClient.informationTo(entry.getLink(), file)
+                        .thenReturn(new FetchedEntry(entry, file))
+                        .doOnError(e -> deleteQuietly(file)));
+    }
+
+    private static String hostOf(Entry entry) {
+        if (entry.getContent() != null && !entry.getContent().isBlank()) {
+            return INLINE;
+        }
+        try {
+            return Optional.ofNullable(URI.create(entry.getLink()).getHost()).orElse("unknown");
+        } catch (RuntimeException e) {
+            return "unknown";
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // the file is in the transaction directory, it goes with it
+        }
+    }
+
+    @AllArgsConstructor
+    @Getter
+    static class FetchedEntry {
+        private final Entry entry;
+        //File holding the health information fetched from the link of the entry, null for inline entries
+        private final Path content;
+
+        boolean isFetched() {
+            return content != null;
+        }
+
+        /**
+         * Reads the fetched health information and removes its file, empty when the HIP sent none.
+         */
+        Optional<HealthInformation> read() throws IOException {
+            try {
+                if (Files.size(content) == 0) {
+                    return Optional.empty();
+                }
+                return Optional.of(objectMapper.readValue(content.toFile(), HealthInformation.class));
+            } finally {
+                deleteQuietly(content);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.org.projecteka.hiu.dataflow.model.Entry;
+import in.org.projecteka.hiu.dataprocessor.model.EntrySummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.util.function.Tuple2;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Entries of a part saved so far, appended to a file next to the part as each batch of them is saved. When a part
+ * is delivered again, because its consumer died or its processing failed, entries found in the checkpoint are not
+ * fetched, decrypted, parsed or saved again. An entry is matched by its position in the part. Lines are not
+ * synced to the disk; when lines were lost or torn by a crash, the rows of the part no longer match its checkpoint
+ * and the part is processed again from its first entry.
+ */
+class PartCheckpoint {
+    private static final Logger logger = LoggerFactory.getLogger(PartCheckpoint.class);
+    private static final String SUFFIX = ".checkpoint";
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Map<Long, EntrySummary> checkpointed;
+    private final List<EntrySummary> resumed = new ArrayList<>();
+    private boolean broken;
+
+    private PartCheckpoint(Path file, ObjectMapper objectMapper, Map<Long, EntrySummary> checkpointed) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        this.checkpointed = checkpointed;
+    }
+
+    static PartCheckpoint open(Path dataFilePath, ObjectMapper objectMapper) throws IOException {
+        Path file = dataFilePath.resolveSibling(dataFilePath.getFileName() + SUFFIX);
+        Map<Long, EntrySummary> checkpointed = new HashMap<>();
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        var entry = objectMapper.readValue(line, EntrySummary.class);
+                        checkpointed.put(entry.getIndex(), entry);
+                    } catch (IOException e) {
+                        logger.warn("Ignoring incomplete checkpoint of {}", dataFilePath);
+                    }
+                }
+            }
+            logger.info("Resuming {} with {} entries already saved", dataFilePath, checkpointed.size());
+        }
+        return new PartCheckpoint(file, objectMapper, checkpointed);
+    }
+
+    /**
+     * Number of entries saved by earlier deliveries of the part, in the order they were saved.
+     */
+    int size() {
+        return checkpointed.size();
+    }
+
+    /**
+     * True when the entry at the index still has to be processed. Entries saved before are kept aside, to be
+     * returned by {@link #resumed()}.
+     */
+    synchronized boolean isPending(Tuple2<Long, Entry> indexed) {
+        EntrySummary entry = checkpointed.get(indexed.getT1());
+        if (entry == null) {
+            return true;
+        }
+        resumed.add(entry);
+        return false;
+    }
+
+    synchronized List<EntrySummary> resumed() {
+        return new ArrayList<>(resumed);
+    }
+
+    /**
+     * Appends a batch of saved entries. Once a batch could not be written the batches after it are not written
+     * either, the part then has more rows than its checkpoint and is processed again in full if it is delivered
+     * again.
+     */
+    synchronized void record(List<EntrySummary> saved) {
+        if (broken) {
+            return;
+        }
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (EntrySummary entry : saved) {
+                lines.append(objectMapper.writeValueAsString(entry)).append(System.lineSeparator());
+            }
+            Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8), CREATE, WRITE, APPEND);
+        } catch (IOException e) {
+            broken = true;
+            logger.warn("Could not checkpoint {} entries of {}", saved.size(), file, e);
+        }
+    }
+
+    /**
+     * The rows saved by earlier deliveries of the part are gone, none of its entries are taken as saved.
+     */
+    synchronized void restart() {
+        checkpointed.clear();
+        broken = false;
+        delete();
+    }
+
+    /**
+     * The part is saved or can't be processed, its entries won't be processed again.
+     */
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete checkpoint {}", file, e);
+        }
+    }
+}
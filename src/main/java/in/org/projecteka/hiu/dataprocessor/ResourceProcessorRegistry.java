@@ -0,0 +1,35 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import org.hl7.fhir.r4.model.ResourceType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the processor for a resource type once, up front, so lookups while processing bundle entries
+ * are a plain map read. The registry is immutable after construction and can be shared across consumer threads.
+ */
+public class ResourceProcessorRegistry {
+    private final Map<ResourceType, HITypeResourceProcessor> processors;
+
+    public ResourceProcessorRegistry(List<HITypeResourceProcessor> resourceProcessors) {
+        Map<ResourceType, HITypeResourceProcessor> byType = new EnumMap<>(ResourceType.class);
+        for (ResourceType type : ResourceType.values()) {
+            resourceProcessors.stream()
+                    .filter(processor -> processor.supports(type))
+                    .findFirst()
+                    .ifPresent(processor -> byType.put(type, processor));
+        }
+        this.processors = Collections.unmodifiableMap(byType);
+    }
+
+    public HITypeResourceProcessor forType(ResourceType type) {
+        return processors.get(type);
+    }
+
+    public boolean supports(ResourceType type) {
+        return processors.containsKey(type);
+    }
+}
@@ -0,0 +1,43 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import in.org.projecteka.hiu.dataflow.DataFlowRepository;
+import in.org.projecteka.hiu.dataflow.model.TransactionMetadata;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Consent, HIP, consent manager and keys of a transaction never change while its data flows. They are looked up
+ * once and shared by every part of the transaction and by the notifications sent for them. Keys are saved once the
+ * data flow request is acknowledged, so a part can arrive before them; metadata without keys or a consent manager
+ * is not kept, and is looked up again for the next part.
+ */
+public class TransactionMetadataCache {
+    private final DataFlowRepository dataFlowRepository;
+    private final Cache<String, TransactionMetadata> transactions;
+
+    public TransactionMetadataCache(DataFlowRepository dataFlowRepository, long maximumSize, Duration expiry) {
+        this.dataFlowRepository = dataFlowRepository;
+        this.transactions = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expiry)
+                .build();
+    }
+
+    public Mono<TransactionMetadata> metadataFor(String transactionId) {
+        return Mono.defer(() -> {
+            var cached = transactions.getIfPresent(transactionId);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return dataFlowRepository.getTransactionMetadata(transactionId)
+                    .doOnNext(metadata -> {
+                        if (metadata.getKeyMaterial() != null && metadata.getConsentManagerId() != null) {
+                            transactions.put(transactionId, metadata);
+                        }
+                    });
+        });
+    }
+}
@@ -16,6 +16,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -24,6 +25,7 @@ public class BundleContext {
     private Function<ResourceType, HITypeResourceProcessor> resourceProcessor;
     private List<Resource> processedResList = new ArrayList<>();
     private List<TrackedResourceReference> trackedResources = new ArrayList<>();
+    private List<CompletableFuture<?>> pendingWork = new ArrayList<>();
 
     private static final String VERSION_UNKNOWN = "UNKNOWN";
 
@@ -63,6 +65,20 @@ public class BundleContext {
         trackedResources.add(new TrackedResourceReference(resourceType, resourceId, localDateTime, title));
     }
 
+    /**
+     * Work that changes resources of the bundle in the background, like downloading a linked attachment.
+     */
+    public void awaitBeforeEncoding(CompletableFuture<?> work) {
+        pendingWork.add(work);
+    }
+
+    /**
+     * Waits for all the background work on the bundle, failing if any of it failed.
+     */
+    public void completePendingWork() {
+        CompletableFuture.allOf(pendingWork.toArray(CompletableFuture[]::new)).join();
+    }
+
     public HITypeResourceProcessor findResourceProcessor(ResourceType resourceType) {
         return resourceProcessor.apply(resourceType);
     }
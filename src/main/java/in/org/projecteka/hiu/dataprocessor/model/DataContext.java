@@ -1,7 +1,9 @@
 package in.org.projecteka.hiu.dataprocessor.model;
 
+import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
 import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
 import in.org.projecteka.hiu.dataflow.model.KeyMaterial;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,19 +12,24 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.stream.Collectors;
 
 @Builder
 @Getter
 @Setter
 public class DataContext {
+    //Header of the part, entries are read from the data file as they are processed
     private DataNotificationRequest notifiedData;
+    private int numberOfEntries;
     private Path dataFilePath;
     private String dataPartNumber;
-    private List<TrackedResourceReference> trackedResources;
+    //Latest date of the resources in the entries of the part
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private LocalDateTime latestResourceDate;
     private String hipId;
     private String consentId;
+    //Keys generated for the transaction when its data was requested
+    private DataFlowRequestKeyMaterial savedKeyMaterial;
     private static final Logger logger = LoggerFactory.getLogger(DataContext.class);
 
     public Path getLocalStoragePath() {
@@ -37,17 +44,14 @@ public class DataContext {
         return notifiedData.getKeyMaterial();
     }
 
-    public void addTrackedResources(List<TrackedResourceReference> trackedResources) {
-        this.trackedResources.addAll(trackedResources);
-    }
-    public LocalDateTime latestResourceDate() {
-        if (trackedResources == null || trackedResources.isEmpty()) {
-            return null;
+    public synchronized void addResourceDate(LocalDateTime resourceDate) {
+        if (resourceDate != null && (latestResourceDate == null || resourceDate.isAfter(latestResourceDate))) {
+            latestResourceDate = resourceDate;
         }
-        List<LocalDateTime> dateTimes = trackedResources.stream()
-                .map(res -> res.getLocalDateTime())
-                .filter(resDate -> resDate != null).collect(Collectors.toList());
-        return dateTimes.isEmpty() ?  null : dateTimes.stream().max(LocalDateTime::compareTo).get();
+    }
+
+    public synchronized LocalDateTime latestResourceDate() {
+        return latestResourceDate;
     }
 
     public int getNumberOfEntries() {
@@ -55,10 +59,9 @@ public class DataContext {
             logger.info("There are no notified data in this transaction.");
             return 0;
         }
-        if (notifiedData.getEntries() == null ) {
+        if (numberOfEntries == 0) {
             logger.info("Notified data does not have any entry");
-            return 0;
         }
-        return notifiedData.getEntries().size();
+        return numberOfEntries;
     }
 }
@@ -0,0 +1,30 @@
+package in.org.projecteka.hiu.dataprocessor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+public class EntryOutcome {
+    private final List<String> errors;
+    private final StatusResponse statusResponse;
+    private final HealthDataRecord record;
+
+    public static EntryOutcome failed(List<String> errors, StatusResponse statusResponse, String careContextReference) {
+        return new EntryOutcome(errors, statusResponse, HealthDataRecord.errorFor(careContextReference));
+    }
+
+    public static EntryOutcome succeeded(StatusResponse statusResponse, HealthDataRecord record) {
+        return new EntryOutcome(Collections.emptyList(), statusResponse, record);
+    }
+
+    /**
+     * What is left of the entry once its record is saved.
+     */
+    public EntrySummary summaryAt(long index) {
+        return new EntrySummary(index, statusResponse, errors, record.getLatestResourceDate());
+    }
+}
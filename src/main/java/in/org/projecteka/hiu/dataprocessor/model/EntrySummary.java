@@ -0,0 +1,19 @@
+package in.org.projecteka.hiu.dataprocessor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Status of a saved entry, by its position in the part, as it is reported for the part.
+ */
+@AllArgsConstructor
+@Getter
+public class EntrySummary {
+    private final long index;
+    private final StatusResponse statusResponse;
+    private final List<String> errors;
+    private final LocalDateTime latestResourceDate;
+}
@@ -0,0 +1,28 @@
+package in.org.projecteka.hiu.dataprocessor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@Builder
+@Getter
+public class HealthDataRecord {
+    private final String resource;
+    private final EntryStatus entryStatus;
+    private final LocalDateTime latestResourceDate;
+    private final String careContextReference;
+    private final String docOrigin;
+    private final String docId;
+    private final String docType;
+
+    public static HealthDataRecord errorFor(String careContextReference) {
+        return HealthDataRecord.builder()
+                .resource("")
+                .entryStatus(EntryStatus.ERRORED)
+                .careContextReference(careContextReference)
+                .build();
+    }
+}
@@ -2,23 +2,49 @@ package in.org.projecteka.hiu.dicomweb;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import in.org.projecteka.hiu.LocalDicomServerProperties;
 import org.springframework.util.Base64Utils;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
 
+/**
+ * Client of the local Orthanc server. One instance is shared by all bundles being processed: its http client
+ * keeps connections to the server open between requests, and uploads are sent asynchronously, so the instances
+ * of a study are uploaded concurrently. Studies looked up are cached, instances of the same study share a lookup.
+ */
 public class OrthancDicomWebServer {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(WRITE_DATES_AS_TIMESTAMPS, false);
+
     LocalDicomServerProperties properties;
+    private final HttpClient httpClient;
+    private final Cache<String, CompletableFuture<DicomStudy>> studies;
 
     public OrthancDicomWebServer(LocalDicomServerProperties properties) {
         this.properties = properties;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
+        this.studies = CacheBuilder.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .build();
     }
 
     public boolean exists() {
@@ -26,51 +52,67 @@ public class OrthancDicomWebServer {
         return localDicomSrvUrl != null && !"".equals(localDicomSrvUrl);
     }
 
-    public DicomStudy upload(Path savedFilePath) {
-        try {
-            DicomInstance dicomInstance = uploadStudyInstance(savedFilePath);
-            return retrieveStudyDetails(dicomInstance);
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-        }
-        return null;
+    /**
+     * Uploads the instance and completes with the study it belongs to.
+     */
+    public CompletableFuture<DicomStudy> uploadAsync(Path savedFilePath) {
+        return uploadStudyInstance(savedFilePath).thenCompose(this::retrieveStudyDetails);
     }
 
-    private DicomStudy retrieveStudyDetails(DicomInstance dicomInstance) throws IOException, InterruptedException {
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder();
-        if (requiresAuth()) {
-            requestBuilder.header("Authorization", authCredentials());
-        }
-        HttpRequest request = requestBuilder
-                .uri(instanceStudyURI(dicomInstance.getStudyUuid()))
+    private CompletableFuture<DicomStudy> retrieveStudyDetails(DicomInstance dicomInstance) {
+        String studyUuid = dicomInstance.getStudyUuid();
+        CompletableFuture<DicomStudy> study = studies.asMap().computeIfAbsent(studyUuid, this::fetchStudy);
+        // a failed lookup is not kept, the next instance of the study looks it up again
+        study.whenComplete((details, error) -> {
+            if (error != null) {
+                studies.asMap().remove(studyUuid, study);
+            }
+        });
+        return study;
+    }
+
+    private CompletableFuture<DicomStudy> fetchStudy(String studyUuid) {
+        HttpRequest request = requestBuilder(instanceStudyURI(studyUuid))
                 .header("Content-Type", "application/octet-stream")
                 .GET()
                 .build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request,
-                HttpResponse.BodyHandlers.ofString());
-        ObjectMapper objectMapper = new ObjectMapper()
-                .registerModule(new JavaTimeModule())
-                .configure(WRITE_DATES_AS_TIMESTAMPS, false);
-        return objectMapper.readValue(response.body(), DicomStudy.class);
+        return send(request, DicomStudy.class);
     }
 
-    private DicomInstance uploadStudyInstance(Path savedFilePath) throws IOException, InterruptedException {
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder();
+    private CompletableFuture<DicomInstance> uploadStudyInstance(Path savedFilePath) {
+        HttpRequest request;
+        try {
+            request = requestBuilder(studyInstanceURI())
+                    .header("Content-Type", "application/octet-stream")
+                    .POST(HttpRequest.BodyPublishers.ofFile(savedFilePath))
+                    .build();
+        } catch (FileNotFoundException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return send(request, DicomInstance.class);
+    }
+
+    private <T> CompletableFuture<T> send(HttpRequest request, Class<T> responseType) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() >= 300) {
+                        throw new CompletionException(new IOException(String.format("%s %s failed with status %d",
+                                request.method(), request.uri(), response.statusCode())));
+                    }
+                    try {
+                        return objectMapper.readValue(response.body(), responseType);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private HttpRequest.Builder requestBuilder(URI uri) {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT);
         if (requiresAuth()) {
             requestBuilder.header("Authorization", authCredentials());
         }
-        HttpRequest request = requestBuilder
-                .uri(studyInstanceURI())
-                .header("Content-Type", "application/octet-stream")
-                .POST(HttpRequest.BodyPublishers.ofFile(savedFilePath))
-                .build();
-        HttpResponse<String> response = HttpClient.newHttpClient().send(request,
-                HttpResponse.BodyHandlers.ofString());
-
-        ObjectMapper objectMapper = new ObjectMapper()
-                .registerModule(new JavaTimeModule())
-                .configure(WRITE_DATES_AS_TIMESTAMPS, false);
-        return objectMapper.readValue(response.body(), DicomInstance.class);
+        return requestBuilder;
     }
 
     private URI instanceStudyURI(String studyUuid) {
@@ -0,0 +1,37 @@
+package in.org.projecteka.hiu;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ListenerPropertiesTest {
+
+    @Test
+    void shouldTakeSettingsNotGivenForQueueFromDefaults() {
+        var defaults = new ListenerProperties.ConsumerOptions(2, 3, 50, null, null, null);
+        var queue = new ListenerProperties.ConsumerOptions(null, 8, 16, null, null, null);
+        var listenerProperties = new ListenerProperties(defaults, Map.of("data-flow-process-queue", queue));
+
+        var options = listenerProperties.forQueue("data-flow-process-queue");
+
+        assertThat(options.getConcurrency()).isEqualTo(2);
+        assertThat(options.getMaxConcurrency()).isEqualTo(8);
+        assertThat(options.getPrefetch()).isEqualTo(16);
+        assertThat(options.getBatchSize()).isEqualTo(1);
+        assertThat(options.getConsecutiveActiveTrigger()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldUseDefaultsForQueueNotConfigured() {
+        var defaults = new ListenerProperties.ConsumerOptions(2, 3, 50, 1, 5, 5);
+        var listenerProperties = new ListenerProperties(defaults, Map.of());
+
+        var options = listenerProperties.forQueue("data-flow-delete-queue");
+
+        assertThat(options.getConcurrency()).isEqualTo(2);
+        assertThat(options.getMaxConcurrency()).isEqualTo(3);
+        assertThat(options.getPrefetch()).isEqualTo(50);
+    }
+}
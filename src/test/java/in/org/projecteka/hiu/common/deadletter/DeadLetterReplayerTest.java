@@ -0,0 +1,129 @@
+package in.org.projecteka.hiu.common.deadletter;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import in.org.projecteka.hiu.DestinationsConfig;
+import in.org.projecteka.hiu.common.RabbitQueueNames;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeadLetterReplayerTest {
+    private static final String DEAD_LETTER_QUEUE = "hiu-hiu-dead-letter-queue";
+    private static final String PROCESS_QUEUE = "hiu-data-flow-process-queue";
+
+    @Mock
+    private RabbitOperations rabbitOperations;
+    @Mock
+    private Channel channel;
+
+    private DeadLetterReplayer deadLetterReplayer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(rabbitOperations.execute(any())).thenAnswer(invocation ->
+                invocation.<ChannelCallback<?>>getArgument(0).doInRabbit(channel));
+        var destinationsConfig = new DestinationsConfig(
+                Map.of(PROCESS_QUEUE, new DestinationsConfig.DestinationInfo("exchange", PROCESS_QUEUE)),
+                null);
+        deadLetterReplayer = new DeadLetterReplayer(rabbitOperations,
+                destinationsConfig,
+                new RabbitQueueNames("hiu"),
+                new DeadLetterReplayProperties(1000, 2, 500, 5, false, 15));
+    }
+
+    @Test
+    void shouldRepublishDeadLettersToTheirOriginalQueue() throws Exception {
+        var deadLetter = deadLetter(1, PROCESS_QUEUE, 1);
+        when(channel.messageCount(DEAD_LETTER_QUEUE)).thenReturn(1L);
+        when(channel.basicGet(DEAD_LETTER_QUEUE, false)).thenReturn(deadLetter);
+
+        StepVerifier.create(deadLetterReplayer.replay(null, null))
+                .assertNext(report -> {
+                    assertThat(report.getReplayed()).containsEntry("data-flow-process-queue", 1);
+                    assertThat(report.getDeferred()).isZero();
+                })
+                .verifyComplete();
+
+        verify(channel).basicPublish(eq("exchange"), eq(PROCESS_QUEUE), eq(deadLetter.getProps()), eq(deadLetter.getBody()));
+        verify(channel).basicAck(1, false);
+    }
+
+    @Test
+    void shouldPutBackDeadLettersOfUnknownOrOtherQueuesOrDeadTooOften() throws Exception {
+        var unknown = deadLetter(1, "hiu-retired-queue", 1);
+        var poisoned = deadLetter(2, PROCESS_QUEUE, 6);
+        when(channel.messageCount(DEAD_LETTER_QUEUE)).thenReturn(2L);
+        when(channel.basicGet(DEAD_LETTER_QUEUE, false)).thenReturn(unknown, poisoned);
+
+        StepVerifier.create(deadLetterReplayer.replay(null, null))
+                .assertNext(report -> {
+                    assertThat(report.getReplayed()).isEmpty();
+                    assertThat(report.getDeferred()).isEqualTo(2);
+                })
+                .verifyComplete();
+
+        verify(channel, never()).basicPublish(eq("exchange"), anyString(), any(), any());
+        verify(channel).basicPublish(eq(""), eq(DEAD_LETTER_QUEUE), eq(unknown.getProps()), eq(unknown.getBody()));
+        verify(channel).basicPublish(eq(""), eq(DEAD_LETTER_QUEUE), eq(poisoned.getProps()), eq(poisoned.getBody()));
+    }
+
+    @Test
+    void shouldReplayOnlyDeadLettersOfTheRequestedQueue() throws Exception {
+        var deadLetter = deadLetter(1, PROCESS_QUEUE, 1);
+        when(channel.messageCount(DEAD_LETTER_QUEUE)).thenReturn(1L);
+        when(channel.basicGet(DEAD_LETTER_QUEUE, false)).thenReturn(deadLetter);
+
+        StepVerifier.create(deadLetterReplayer.replay("data-flow-delete-queue", null))
+                .assertNext(report -> assertThat(report.getDeferred()).isEqualTo(1))
+                .verifyComplete();
+
+        verify(channel).basicPublish(eq(""), eq(DEAD_LETTER_QUEUE), any(), any());
+    }
+
+    @Test
+    void shouldStopWhenDeadLetterQueueIsDrained() throws Exception {
+        when(channel.messageCount(DEAD_LETTER_QUEUE)).thenReturn(3L);
+        when(channel.basicGet(DEAD_LETTER_QUEUE, false)).thenReturn(null);
+
+        StepVerifier.create(deadLetterReplayer.replay(null, 10))
+                .assertNext(report -> {
+                    assertThat(report.getReplayed()).isEmpty();
+                    assertThat(report.getDeferred()).isZero();
+                })
+                .verifyComplete();
+
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    private static GetResponse deadLetter(long deliveryTag, String routingKey, long count) {
+        var death = Map.<String, Object>of("queue", routingKey,
+                "routing-keys", List.of(routingKey),
+                "count", count);
+        var properties = new AMQP.BasicProperties.Builder()
+                .headers(Map.of("x-death", List.of(death)))
+                .build();
+        var envelope = new Envelope(deliveryTag, false, "hiu-dead-letter-exchange", "deadLetter");
+        return new GetResponse(envelope, properties, "{}".getBytes(), 0);
+    }
+}
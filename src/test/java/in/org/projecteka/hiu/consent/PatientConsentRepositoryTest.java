@@ -0,0 +1,136 @@
+package in.org.projecteka.hiu.consent;
+
+import in.org.projecteka.hiu.dataflow.model.PatientDataRequestMapping;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.test.StepVerifier;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PatientConsentRepositoryTest {
+    @Mock
+    private PgPool readWriteClient;
+
+    @Mock
+    private PgPool readOnlyClient;
+
+    @Mock
+    private PreparedQuery<RowSet<Row>> preparedQuery;
+
+    private PatientConsentRepository patientConsentRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(readOnlyClient.preparedQuery(anyString())).thenReturn(preparedQuery);
+        patientConsentRepository = new PatientConsentRepository(readWriteClient, readOnlyClient);
+    }
+
+    @Test
+    void shouldNotQueryConsentRequestIdsForNoDataRequest() {
+        StepVerifier.create(patientConsentRepository.fetchConsentRequestIds(List.of())).verifyComplete();
+
+        verify(readOnlyClient, never()).preparedQuery(anyString());
+    }
+
+    @Test
+    void shouldBindOneDataRequestIdAsArray() {
+        var dataRequestId = UUID.randomUUID();
+        var consentRequestId = UUID.randomUUID();
+        var tuple = givenRows(row(dataRequestId, consentRequestId, "hipId"));
+
+        StepVerifier.create(patientConsentRepository.fetchConsentRequestIds(List.of(dataRequestId.toString())))
+                .expectNext(PatientDataRequestMapping.builder()
+                        .dataRequestId(dataRequestId.toString())
+                        .consentRequestId(consentRequestId.toString())
+                        .hipId("hipId")
+                        .build())
+                .verifyComplete();
+
+        assertThat(tuple.getValue().size()).isEqualTo(1);
+        assertThat((String[]) tuple.getValue().getValue(0)).containsExactly(dataRequestId.toString());
+    }
+
+    @Test
+    void shouldBindManyDataRequestIdsAsOneArray() {
+        var dataRequestIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        var tuple = givenRows(row(dataRequestIds.get(0), UUID.randomUUID(), "hipId"),
+                row(dataRequestIds.get(1), null, "hipId"),
+                row(dataRequestIds.get(2), UUID.randomUUID(), "otherHipId"));
+
+        StepVerifier.create(patientConsentRepository.fetchConsentRequestIds(List.of(dataRequestIds.get(0).toString(),
+                dataRequestIds.get(1).toString(),
+                dataRequestIds.get(2).toString())))
+                .expectNextMatches(mapping -> mapping.getDataRequestId().equals(dataRequestIds.get(0).toString()))
+                .expectNextMatches(mapping -> mapping.getConsentRequestId() == null)
+                .expectNextMatches(mapping -> mapping.getHipId().equals("otherHipId"))
+                .verifyComplete();
+
+        assertThat(tuple.getValue().size()).isEqualTo(1);
+        assertThat((String[]) tuple.getValue().getValue(0)).containsExactly(dataRequestIds.get(0).toString(),
+                dataRequestIds.get(1).toString(),
+                dataRequestIds.get(2).toString());
+    }
+
+    private ArgumentCaptor<Tuple> givenRows(Row... rows) {
+        ArgumentCaptor<Tuple> tuple = ArgumentCaptor.forClass(Tuple.class);
+        RowSet<Row> rowSet = rowSet(List.of(rows));
+        doAnswer(invocation -> {
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(1);
+            handler.handle(Future.succeededFuture(rowSet));
+            return null;
+        }).when(preparedQuery).execute(tuple.capture(), any());
+        return tuple;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RowSet<Row> rowSet(List<Row> rows) {
+        RowSet<Row> rowSet = mock(RowSet.class);
+        when(rowSet.iterator()).thenAnswer(invocation -> {
+            Iterator<Row> iterator = rows.iterator();
+            return new RowIterator<Row>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Row next() {
+                    return iterator.next();
+                }
+            };
+        });
+        return rowSet;
+    }
+
+    private static Row row(UUID dataRequestId, UUID consentRequestId, String hipId) {
+        Row row = mock(Row.class);
+        when(row.getUUID("data_request_id")).thenReturn(dataRequestId);
+        when(row.getUUID("consent_request_id")).thenReturn(consentRequestId);
+        when(row.getString("hip_id")).thenReturn(hipId);
+        return row;
+    }
+}
@@ -0,0 +1,60 @@
+package in.org.projecteka.hiu.dataflow;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AesGcmCipherTest {
+    private final SecureRandom random = new SecureRandom();
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1024, 1024 * 1024})
+    void shouldDecryptTheSameWithJdkAndBouncyCastle(int size) throws Exception {
+        byte[] key = randomBytes(32);
+        byte[] iv = randomBytes(12);
+        byte[] plainText = randomBytes(size);
+        byte[] encrypted = encrypt(plainText, key, iv);
+
+        byte[] jdkOutput = new byte[size];
+        byte[] bouncyCastleOutput = new byte[size];
+        int jdkLength = new JceAesGcmCipher().decrypt(encrypted, key, iv, jdkOutput);
+        int bouncyCastleLength = new BouncyCastleAesGcmCipher().decrypt(encrypted, key, iv, bouncyCastleOutput);
+
+        assertThat(jdkLength).isEqualTo(size);
+        assertThat(bouncyCastleLength).isEqualTo(size);
+        assertThat(jdkOutput).isEqualTo(plainText);
+        assertThat(bouncyCastleOutput).isEqualTo(plainText);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jdk", "bouncycastle"})
+    void shouldRejectTamperedCipherText(String provider) throws Exception {
+        byte[] key = randomBytes(32);
+        byte[] iv = randomBytes(12);
+        byte[] encrypted = encrypt(randomBytes(64), key, iv);
+        encrypted[0] ^= 1;
+        AesGcmCipher cipher = provider.equals("jdk") ? new JceAesGcmCipher() : new BouncyCastleAesGcmCipher();
+
+        assertThatThrownBy(() -> cipher.decrypt(encrypted, key, iv, new byte[64])).isInstanceOf(Exception.class);
+    }
+
+    private byte[] encrypt(byte[] plainText, byte[] key, byte[] iv) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+        return cipher.doFinal(Arrays.copyOf(plainText, plainText.length));
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
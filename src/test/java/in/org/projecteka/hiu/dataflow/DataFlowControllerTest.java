@@ -5,6 +5,7 @@ import in.org.projecteka.hiu.DestinationsConfig;
 import in.org.projecteka.hiu.ErrorCode;
 import in.org.projecteka.hiu.ErrorRepresentation;
 import in.org.projecteka.hiu.common.Authenticator;
+import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
 import in.org.projecteka.hiu.dataprocessor.DataAvailabilityListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,9 +19,12 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
 
 import static in.org.projecteka.hiu.common.Constants.PATH_DATA_TRANSFER;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -76,6 +80,7 @@ class DataFlowControllerTest {
                 ":{\"cryptoAlg\":\"ECDH\",\"curve\":\"Curve25519\",\"dhPublicKey\":{\"expiry\":\"2021-02-23T06:01:08.552Z\"," +
                 "\"parameters\":\"Curve25519/32byte random key\",\"keyValue\":\"string\"}," +
                 "\"nonce\":\"3fa85f64-5717-4562-b3fc-2c963f66afa6\"}}";
+        when(dataFlowService.handleNotification(any(DataNotificationRequest.class))).thenReturn(Mono.empty());
 
         webClient.post()
                 .uri(PATH_DATA_TRANSFER)
@@ -113,4 +118,16 @@ class DataFlowControllerTest {
                 });
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldGiveBadRequestWhenDataTransferRequestIsMalformed() {
+        webClient.post()
+                .uri(PATH_DATA_TRANSFER)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"pageNumber\":1,\"pageCount\":")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+}
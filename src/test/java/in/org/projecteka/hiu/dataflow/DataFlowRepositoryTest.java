@@ -0,0 +1,183 @@
+package in.org.projecteka.hiu.dataflow;
+
+import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowIterator;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.test.StepVerifier;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DataFlowRepositoryTest {
+    @Mock
+    private PgPool readWriteClient;
+
+    @Mock
+    private PgPool readOnlyClient;
+
+    @Mock
+    private PreparedQuery<RowSet<Row>> preparedQuery;
+
+    private DataFlowRepository dataFlowRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(readWriteClient.preparedQuery(anyString())).thenReturn(preparedQuery);
+        dataFlowRepository = new DataFlowRepository(readWriteClient, readOnlyClient);
+    }
+
+    @Test
+    void shouldNotQueryDataPartDetailsForNoConsentRequest() {
+        StepVerifier.create(dataFlowRepository.fetchDataPartDetails(List.of())).verifyComplete();
+
+        verify(readWriteClient, never()).preparedQuery(anyString());
+    }
+
+    @Test
+    void shouldBindOneConsentRequestIdAsArray() {
+        var tuple = givenRows(dataPartRow("transactionId", "consentRequestId"));
+
+        StepVerifier.create(dataFlowRepository.fetchDataPartDetails(List.of("consentRequestId")))
+                .expectNextMatches(detail -> detail.getTransactionId().equals("transactionId")
+                        && detail.getConsentRequestId().equals("consentRequestId")
+                        && detail.getStatus() == HealthInfoStatus.SUCCEEDED)
+                .verifyComplete();
+
+        assertThat(tuple.getValue().size()).isEqualTo(1);
+        assertThat((String[]) tuple.getValue().getValue(0)).containsExactly("consentRequestId");
+    }
+
+    @Test
+    void shouldBindManyConsentRequestIdsAsOneArray() {
+        var tuple = givenRows(dataPartRow("transactionId1", "consentRequestId1"),
+                dataPartRow("transactionId2", "consentRequestId2"),
+                dataPartRow("transactionId3", "consentRequestId2"));
+
+        StepVerifier.create(dataFlowRepository.fetchDataPartDetails(List.of("consentRequestId1",
+                "consentRequestId2",
+                "consentRequestId3")))
+                .expectNextMatches(detail -> detail.getTransactionId().equals("transactionId1"))
+                .expectNextMatches(detail -> detail.getTransactionId().equals("transactionId2"))
+                .expectNextMatches(detail -> detail.getTransactionId().equals("transactionId3"))
+                .verifyComplete();
+
+        assertThat(tuple.getValue().size()).isEqualTo(1);
+        assertThat((String[]) tuple.getValue().getValue(0))
+                .containsExactly("consentRequestId1", "consentRequestId2", "consentRequestId3");
+    }
+
+    @Test
+    void shouldNotQueryPatientDataRequestDetailsForNoDataRequest() {
+        StepVerifier.create(dataFlowRepository.fetchPatientDataRequestDetails(Set.of())).verifyComplete();
+
+        verify(readWriteClient, never()).preparedQuery(anyString());
+    }
+
+    @Test
+    void shouldBindOneDataRequestIdAsArray() {
+        var tuple = givenRows(dataRequestRow("dataRequestId", "SUCCEEDED"));
+
+        StepVerifier.create(dataFlowRepository.fetchPatientDataRequestDetails(Set.of("dataRequestId")))
+                .expectNextMatches(detail -> detail.getDataRequestId().equals("dataRequestId")
+                        && detail.getDataPartStatus() == HealthInfoStatus.SUCCEEDED)
+                .verifyComplete();
+
+        assertThat(tuple.getValue().size()).isEqualTo(1);
+        assertThat((String[]) tuple.getValue().getValue(0)).containsExactly("dataRequestId");
+    }
+
+    @Test
+    void shouldBindManyDataRequestIdsAsOneArray() {
+        var tuple = givenRows(dataRequestRow("dataRequestId1", "SUCCEEDED"),
+                dataRequestRow("dataRequestId2", null),
+                dataRequestRow("dataRequestId3", "ERRORED"));
+
+        StepVerifier.create(dataFlowRepository.fetchPatientDataRequestDetails(Set.of("dataRequestId1",
+                "dataRequestId2",
+                "dataRequestId3")))
+                .expectNextMatches(detail -> detail.getDataPartStatus() == HealthInfoStatus.SUCCEEDED)
+                .expectNextMatches(detail -> detail.getDataPartStatus() == null)
+                .expectNextMatches(detail -> detail.getDataPartStatus() == HealthInfoStatus.ERRORED)
+                .verifyComplete();
+
+        assertThat(tuple.getValue().size()).isEqualTo(1);
+        assertThat((String[]) tuple.getValue().getValue(0))
+                .containsExactlyInAnyOrder("dataRequestId1", "dataRequestId2", "dataRequestId3");
+    }
+
+    private ArgumentCaptor<Tuple> givenRows(Row... rows) {
+        ArgumentCaptor<Tuple> tuple = ArgumentCaptor.forClass(Tuple.class);
+        RowSet<Row> rowSet = rowSet(List.of(rows));
+        doAnswer(invocation -> {
+            Handler<AsyncResult<RowSet<Row>>> handler = invocation.getArgument(1);
+            handler.handle(Future.succeededFuture(rowSet));
+            return null;
+        }).when(preparedQuery).execute(tuple.capture(), any());
+        return tuple;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RowSet<Row> rowSet(List<Row> rows) {
+        RowSet<Row> rowSet = mock(RowSet.class);
+        when(rowSet.iterator()).thenAnswer(invocation -> {
+            Iterator<Row> iterator = rows.iterator();
+            return new RowIterator<Row>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Row next() {
+                    return iterator.next();
+                }
+            };
+        });
+        return rowSet;
+    }
+
+    private static Row dataPartRow(String transactionId, String consentRequestId) {
+        Row row = mock(Row.class);
+        when(row.getString("transaction_id")).thenReturn(transactionId);
+        when(row.getString("hipid")).thenReturn("hipId");
+        when(row.getString("consent_artefact_id")).thenReturn("consentArtefactId");
+        when(row.getString("consent_request_id")).thenReturn(consentRequestId);
+        when(row.getString("status")).thenReturn("SUCCEEDED");
+        when(row.getString("requester")).thenReturn("requester");
+        return row;
+    }
+
+    private static Row dataRequestRow(String dataRequestId, String dataPartStatus) {
+        Row row = mock(Row.class);
+        when(row.getString("hip_id")).thenReturn("hipId");
+        when(row.getString("data_request_id")).thenReturn(dataRequestId);
+        when(row.getString("data_part_status")).thenReturn(dataPartStatus);
+        when(row.getString("consent_request_id")).thenReturn("consentRequestId");
+        when(row.getString("consent_artefact_id")).thenReturn("consentArtefactId");
+        when(row.getString("patient_id")).thenReturn("patientId");
+        return row;
+    }
+}
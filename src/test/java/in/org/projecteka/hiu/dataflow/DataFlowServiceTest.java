@@ -0,0 +1,95 @@
+package in.org.projecteka.hiu.dataflow;
+
+import in.org.projecteka.hiu.common.cache.CacheAdapter;
+import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
+import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
+import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.file.NoSuchFileException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static in.org.projecteka.hiu.dataflow.TestBuilders.entry;
+import static in.org.projecteka.hiu.dataflow.TestBuilders.keyMaterial;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DataFlowServiceTest {
+    private static final long LARGE_DATA_PART_THRESHOLD = 1024;
+    private static final String TRANSACTION_ID = "transactionId";
+
+    @Mock
+    private DataFlowRepository dataFlowRepository;
+
+    @Mock
+    private DataAvailabilityPublisher dataAvailabilityPublisher;
+
+    @Mock
+    private LocalDataStore localDataStore;
+
+    @Mock
+    private CacheAdapter<String, DataFlowRequestKeyMaterial> dataFlowCache;
+
+    private DataFlowService dataFlowService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        var properties = new DataFlowServiceProperties();
+        properties.setLocalStoragePath("/tmp/hiu");
+        properties.setLargeDataPartThreshold(LARGE_DATA_PART_THRESHOLD);
+        dataFlowService = new DataFlowService(dataFlowRepository,
+                dataAvailabilityPublisher,
+                properties,
+                localDataStore,
+                dataFlowCache);
+
+        Map<String, Object> flowRequestMap = new HashMap<>();
+        flowRequestMap.put("consentRequestId", "consentRequestId");
+        when(dataFlowRepository.retrieveDataFlowRequest(TRANSACTION_ID)).thenReturn(Mono.just(flowRequestMap));
+        when(dataFlowRepository.insertDataPartAvailability(TRANSACTION_ID, 1, HealthInfoStatus.RECEIVED))
+                .thenReturn(Mono.empty());
+        when(localDataStore.serializeDataToFile(any(), any())).thenReturn(Mono.empty());
+        when(dataAvailabilityPublisher.broadcastDataAvailability(any(), any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void shouldPublishPartAtOrAboveThresholdToLargeLane() {
+        when(localDataStore.sizeOf(any())).thenReturn(Mono.just(LARGE_DATA_PART_THRESHOLD));
+
+        StepVerifier.create(dataFlowService.handleNotification(dataNotificationRequest()))
+                .verifyComplete();
+
+        verify(dataAvailabilityPublisher).broadcastDataAvailability(any(), eq(DataPartLane.LARGE));
+    }
+
+    @Test
+    void shouldPublishPartToRegularLaneWhenItsSizeIsUnknown() {
+        when(localDataStore.sizeOf(any())).thenReturn(Mono.error(new NoSuchFileException("part")));
+
+        StepVerifier.create(dataFlowService.handleNotification(dataNotificationRequest()))
+                .verifyComplete();
+
+        verify(dataAvailabilityPublisher).broadcastDataAvailability(any(), eq(DataPartLane.REGULAR));
+    }
+
+    private DataNotificationRequest dataNotificationRequest() {
+        var entry = entry().build();
+        entry.setLink(null);
+        entry.setContent("Some Dummy Content XYZ 1");
+        return DataNotificationRequest.builder()
+                .transactionId(TRANSACTION_ID)
+                .entries(List.of(entry))
+                .keyMaterial(keyMaterial().build())
+                .build();
+    }
+}
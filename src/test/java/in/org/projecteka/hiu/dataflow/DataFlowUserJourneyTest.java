@@ -19,6 +19,7 @@ import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
 import in.org.projecteka.hiu.dataflow.model.Entry;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
 import in.org.projecteka.hiu.dataflow.model.HealthInformation;
+import in.org.projecteka.hiu.dataflow.model.HealthInformationCursor;
 import in.org.projecteka.hiu.dataprocessor.DataAvailabilityListener;
 import in.org.projecteka.hiu.dataprocessor.model.EntryStatus;
 import in.org.projecteka.hiu.user.Role;
@@ -39,6 +40,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -46,6 +48,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static in.org.projecteka.hiu.common.Constants.PATH_HEALTH_INFORMATION_HIU_ON_REQUEST;
 import static in.org.projecteka.hiu.consent.TestBuilders.randomString;
@@ -58,6 +61,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -143,7 +147,7 @@ class DataFlowUserJourneyTest {
         when(dataFlowRepository.insertDataPartAvailability(transactionId, 1, HealthInfoStatus.RECEIVED))
                 .thenReturn(Mono.empty());
         when(dataFlowRepository.retrieveDataFlowRequest(transactionId)).thenReturn(Mono.just(flowRequestMap));
-        when(dataAvailabilityPublisher.broadcastDataAvailability(any())).thenReturn(Mono.empty());
+        when(dataAvailabilityPublisher.broadcastDataAvailability(any(), any())).thenReturn(Mono.empty());
         when(localDataStore.serializeDataToFile(any(), any())).thenReturn(Mono.empty());
 
         webTestClient
@@ -182,6 +186,7 @@ class DataFlowUserJourneyTest {
         healthInfo.put("status", EntryStatus.SUCCEEDED.toString());
         healthInfo.put("doc_id", "1.v1");
         healthInfo.put("doc_origin", hipId);
+        healthInfo.put("transaction_id", transactionId);
         DataEntry dataEntry = DataEntry.builder()
                                 .hipId(hipId)
                                 .hipName(hipName)
@@ -194,7 +199,8 @@ class DataFlowUserJourneyTest {
         dataEntries.add(dataEntry);
         when(consentRepository.getConsentDetails(consentRequestId)).thenReturn(Flux.fromIterable(consentDetails));
         when(dataFlowRepository.getTransactionId(consentId)).thenReturn(Mono.just(transactionId));
-        when(healthInformationRepository.getHealthInformation(transactionId)).thenReturn(Flux.just(healthInfo));
+        when(healthInformationRepository.getHealthInformationPage(List.of(transactionId), null, 21, 0))
+                .thenReturn(Mono.just(Tuples.of(List.of(healthInfo), 1)));
 
         webTestClient
                 .get()
@@ -210,6 +216,159 @@ class DataFlowUserJourneyTest {
                 .value(HealthInformation::getEntries, Matchers.is(dataEntries));
     }
 
+    @Test
+    void shouldFetchHealthInformationAfterTheGivenCursor() {
+        var consentRequestId = "consentRequestId";
+        var consentId = "consentId";
+        var transactionId = "transactionId";
+        Map<String, String> consentDetail = new HashMap<>();
+        consentDetail.put("consentId", consentId);
+        consentDetail.put("hipId", "10000005");
+        consentDetail.put("hipName", "Max health care");
+        consentDetail.put("requester", "testUser");
+        consentDetail.put("status", "GRANTED");
+        consentDetail.put("consentExpiryDate", "9999-01-15T08:47:48");
+        var token = randomString();
+        var caller = new Caller("testUser", false, Role.ADMIN.toString(), true);
+        when(authenticator.verify(token)).thenReturn(Mono.just(caller));
+        var after = new HealthInformationCursor(transactionId, "1", 1L);
+        var last = new HealthInformationCursor(transactionId, "1", 2L);
+        Map<String, Object> first = new HashMap<>();
+        first.put("data", "first");
+        first.put("transaction_id", transactionId);
+        first.put("cursor", last);
+        Map<String, Object> second = new HashMap<>();
+        second.put("data", "second");
+        second.put("transaction_id", transactionId);
+        second.put("cursor", new HealthInformationCursor(transactionId, "2", 3L));
+        when(consentRepository.getConsentDetails(consentRequestId)).thenReturn(Flux.just(consentDetail));
+        when(dataFlowRepository.getTransactionId(consentId)).thenReturn(Mono.just(transactionId));
+        when(healthInformationRepository.getHealthInformationPage(List.of(transactionId), after, 2, 0))
+                .thenReturn(Mono.just(Tuples.of(List.of(first, second), 4)));
+
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path("/health-information/fetch/consentRequestId")
+                        .queryParam("limit", "1")
+                        .queryParam("cursor", after.encode()).build())
+                .header("Authorization", token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(HealthInformation.class)
+                .value(HealthInformation::getSize, Matchers.is(4))
+                .value(healthInformation -> healthInformation.getEntries().size(), Matchers.is(1))
+                .value(healthInformation -> healthInformation.getEntries().get(0).getData(), Matchers.is("first"))
+                .value(HealthInformation::getNextCursor, Matchers.is(last.encode()));
+    }
+
+    @Test
+    void shouldStreamHealthInformationAsNdjson() {
+        var consentRequestId = "consentRequestId";
+        var consentId = "consentId";
+        var transactionId = "transactionId";
+        Map<String, String> consentDetail = new HashMap<>();
+        consentDetail.put("consentId", consentId);
+        consentDetail.put("hipId", "10000005");
+        consentDetail.put("hipName", "Max health care");
+        consentDetail.put("requester", "testUser");
+        consentDetail.put("status", "GRANTED");
+        consentDetail.put("consentExpiryDate", "9999-01-15T08:47:48");
+        var token = randomString();
+        var caller = new Caller("testUser", false, Role.ADMIN.toString(), true);
+        when(authenticator.verify(token)).thenReturn(Mono.just(caller));
+        Map<String, Object> first = new HashMap<>();
+        first.put("data", "first");
+        first.put("transaction_id", transactionId);
+        Map<String, Object> second = new HashMap<>();
+        second.put("data", "second");
+        second.put("transaction_id", transactionId);
+        when(consentRepository.getConsentDetails(consentRequestId)).thenReturn(Flux.just(consentDetail));
+        when(dataFlowRepository.getTransactionId(consentId)).thenReturn(Mono.just(transactionId));
+        when(healthInformationRepository.streamHealthInformationPage(List.of(transactionId), null, null, 0))
+                .thenReturn(Flux.just(first, second));
+
+        webTestClient
+                .get()
+                .uri("/health-information/fetch/consentRequestId")
+                .header("Authorization", token)
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_NDJSON)
+                .expectBodyList(DataEntry.class)
+                .value(dataEntries -> dataEntries.stream().map(DataEntry::getData).collect(Collectors.toList()),
+                        Matchers.is(List.of("first", "second")));
+    }
+
+    @Test
+    void shouldRejectAnInvalidCursor() {
+        var token = randomString();
+        var caller = new Caller("testUser", false, Role.ADMIN.toString(), true);
+        when(authenticator.verify(token)).thenReturn(Mono.just(caller));
+
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path("/health-information/fetch/consentRequestId")
+                        .queryParam("cursor", "not-a-cursor").build())
+                .header("Authorization", token)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldRejectAnOffsetGivenAlongWithCursor() {
+        var token = randomString();
+        var caller = new Caller("testUser", false, Role.ADMIN.toString(), true);
+        when(authenticator.verify(token)).thenReturn(Mono.just(caller));
+        var after = new HealthInformationCursor("transactionId", "1", 1L);
+
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path("/health-information/fetch/consentRequestId")
+                        .queryParam("offset", "10")
+                        .queryParam("cursor", after.encode()).build())
+                .header("Authorization", token)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldFetchAtLeastOneEntryWhenLimitIsNegative() {
+        var consentRequestId = "consentRequestId";
+        var consentId = "consentId";
+        var transactionId = "transactionId";
+        Map<String, String> consentDetail = new HashMap<>();
+        consentDetail.put("consentId", consentId);
+        consentDetail.put("hipId", "10000005");
+        consentDetail.put("hipName", "Max health care");
+        consentDetail.put("requester", "testUser");
+        consentDetail.put("status", "GRANTED");
+        consentDetail.put("consentExpiryDate", "9999-01-15T08:47:48");
+        var token = randomString();
+        var caller = new Caller("testUser", false, Role.ADMIN.toString(), true);
+        when(authenticator.verify(token)).thenReturn(Mono.just(caller));
+        Map<String, Object> healthInfo = new HashMap<>();
+        healthInfo.put("data", "first");
+        healthInfo.put("transaction_id", transactionId);
+        when(consentRepository.getConsentDetails(consentRequestId)).thenReturn(Flux.just(consentDetail));
+        when(dataFlowRepository.getTransactionId(consentId)).thenReturn(Mono.just(transactionId));
+        when(healthInformationRepository.getHealthInformationPage(List.of(transactionId), null, 2, 0))
+                .thenReturn(Mono.just(Tuples.of(List.of(healthInfo), 1)));
+
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path("/health-information/fetch/consentRequestId")
+                        .queryParam("limit", "-5")
+                        .queryParam("offset", "-3").build())
+                .header("Authorization", token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(HealthInformation.class)
+                .value(HealthInformation::getLimit, Matchers.is(1))
+                .value(HealthInformation::getOffset, Matchers.is(0))
+                .value(HealthInformation::getSize, Matchers.is(1));
+    }
+
     @Test
     void shouldNotFetchHealthInformationForExpiredConsent() throws JsonProcessingException {
         var consentRequestId = "consentRequestId";
@@ -7,6 +7,8 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.Reader;
+import java.io.StringWriter;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
@@ -62,5 +64,74 @@ public class DecryptorTest {
                 .isEqualTo("\"This is a string\"");
     }
 
+    @Test
+    public void shouldDecryptDataIntoReusedBuffer() throws Exception {
+        var hiuPrivateKey = "DrDDUf+HIXB59/ym4GxrM/TfeULHyiUVzHWkq9rFkJI=";
+        var hiuRandomKey = "pk5xT1Xk+KUlf/LC1LZawKECPNvOvIzhZNEyIdh7oJE=";
+        var encryptedString = "cMTT+FiiDMVXdK1nbBXmnNXP2doSbWQ11Sl8rs1d5SzVDA==";
+        var senderPublicKey = "MIIBMTCB6gYHKoZIzj0CATCB3gIBATArBgcqhkjOPQEBAiB/////////////////////////////////////////7TBEBCAqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqYSRShRAQge0Je0Je0Je0Je0Je0Je0Je0Je0Je0Je0JgtenHcQyGQEQQQqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqq0kWiCuGaG4oIa04B7dLHdI0UySPU1+bXxhsinpxaJ+ztPZAiAQAAAAAAAAAAAAAAAAAAAAFN753qL3nNZYEmMaXPXT7QIBCANCAARfpkcbh0Y6Z1xcck4D2pNKLQ2DwLOxI9bO2sy8zlbJ4391xJpwYNG2STnmP9cwz0+V74B3mbcykl5J1gsXtNe+";
+        var senderRandomKey = "xXrM6PfCsBX0Q238uxZCP8YBpPXxsiZvbE++jX5GV5c=";
+        KeyMaterial receivedKeyMaterial = KeyMaterial.builder()
+                .dhPublicKey(KeyStructure.builder().keyValue(senderPublicKey).build())
+                .nonce(senderRandomKey)
+                .build();
+        DataFlowRequestKeyMaterial savedKeyMaterial = DataFlowRequestKeyMaterial.builder()
+                .randomKey(hiuRandomKey).privateKey(hiuPrivateKey)
+                .build();
+
+        for (int i = 0; i < 2; i++) {
+            var decrypted = new StringWriter();
+            decryptor.decrypt(receivedKeyMaterial, savedKeyMaterial, encryptedString,
+                    reader -> reader.transferTo(decrypted));
+
+            assertThat(decrypted.toString()).isEqualTo("\"This is a string\"");
+        }
+    }
+
+    @Test
+    public void shouldDecryptDataWhileReadingIt() throws Exception {
+        var hiuPrivateKey = "DrDDUf+HIXB59/ym4GxrM/TfeULHyiUVzHWkq9rFkJI=";
+        var hiuRandomKey = "pk5xT1Xk+KUlf/LC1LZawKECPNvOvIzhZNEyIdh7oJE=";
+        var encryptedString = "cMTT+FiiDMVXdK1nbBXmnNXP2doSbWQ11Sl8rs1d5SzVDA==";
+        var senderPublicKey = "MIIBMTCB6gYHKoZIzj0CATCB3gIBATArBgcqhkjOPQEBAiB/////////////////////////////////////////7TBEBCAqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqYSRShRAQge0Je0Je0Je0Je0Je0Je0Je0Je0Je0Je0JgtenHcQyGQEQQQqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqq0kWiCuGaG4oIa04B7dLHdI0UySPU1+bXxhsinpxaJ+ztPZAiAQAAAAAAAAAAAAAAAAAAAAFN753qL3nNZYEmMaXPXT7QIBCANCAARfpkcbh0Y6Z1xcck4D2pNKLQ2DwLOxI9bO2sy8zlbJ4391xJpwYNG2STnmP9cwz0+V74B3mbcykl5J1gsXtNe+";
+        var senderRandomKey = "xXrM6PfCsBX0Q238uxZCP8YBpPXxsiZvbE++jX5GV5c=";
+        KeyMaterial receivedKeyMaterial = KeyMaterial.builder()
+                .dhPublicKey(KeyStructure.builder().keyValue(senderPublicKey).build())
+                .nonce(senderRandomKey)
+                .build();
+        DataFlowRequestKeyMaterial savedKeyMaterial = DataFlowRequestKeyMaterial.builder()
+                .randomKey(hiuRandomKey).privateKey(hiuPrivateKey)
+                .build();
+        var decrypted = new StringWriter();
+
+        try (Reader reader = decryptor.decryptingReader(receivedKeyMaterial, savedKeyMaterial, encryptedString)) {
+            reader.transferTo(decrypted);
+        }
+
+        assertThat(decrypted.toString()).isEqualTo("\"This is a string\"");
+    }
+
+    @Test
+    public void shouldDeriveCryptoSessionOncePerKeyMaterial() throws Exception {
+        var senderKeyPair = decryptor.generateKeyPair();
+        var receiverKeyPair = decryptor.generateKeyPair();
+        KeyMaterial receivedKeyMaterial = KeyMaterial.builder()
+                .dhPublicKey(KeyStructure.builder()
+                        .keyValue(decryptor.getBase64String(senderKeyPair.getPublic().getEncoded()))
+                        .build())
+                .nonce(decryptor.generateRandomKey())
+                .build();
+        DataFlowRequestKeyMaterial savedKeyMaterial = DataFlowRequestKeyMaterial.builder()
+                .randomKey(decryptor.generateRandomKey())
+                .privateKey(decryptor.getBase64String(decryptor.getEncodedPrivateKey(receiverKeyPair.getPrivate())))
+                .build();
+
+        var session = decryptor.sessionFor(receivedKeyMaterial, savedKeyMaterial);
+
+        assertThat(decryptor.sessionFor(receivedKeyMaterial, savedKeyMaterial)).isSameAs(session);
+        assertThat(session.getAesKey()).hasSize(32);
+        assertThat(session.getIv()).hasSize(12);
+    }
+
 
 }
@@ -0,0 +1,71 @@
+package in.org.projecteka.hiu.dataflow;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalDataStoreTest {
+    private static final String NOTIFICATION = "{\"pageNumber\":1,\"pageCount\":1,\"transactionId\":\"123456\"," +
+            "\"entries\":[{\"content\":\"VGhpcyBpcyBhIHN0cmluZw==\",\"media\":\"application/fhir+json\"," +
+            "\"checksum\":\"string\",\"careContextReference\":\"RVH1008\"},{\"link\":\"https://data-from.net/sa2321\"," +
+            "\"media\":\"application/fhir+json\",\"checksum\":\"string\",\"careContextReference\":\"NCC1701\"}," +
+            "{\"content\":\"\",\"media\":\"application/fhir+json\",\"careContextReference\":\"NCC1702\"}]," +
+            "\"keyMaterial\":{\"cryptoAlg\":\"ECDH\",\"curve\":\"Curve25519\",\"dhPublicKey\":" +
+            "{\"expiry\":\"2021-02-23T06:01:08.552Z\",\"parameters\":\"Curve25519/32byte random key\"," +
+            "\"keyValue\":\"string\"},\"nonce\":\"3fa85f64-5717-4562-b3fc-2c963f66afa6\"}}";
+
+    @TempDir
+    Path storagePath;
+
+    private LocalDataStore localDataStore;
+
+    @BeforeEach
+    void setUp() {
+        localDataStore = new LocalDataStore();
+    }
+
+    @Test
+    void shouldSpoolNotificationAndReadItsHeader() {
+        var spooledFile = storagePath.resolve("incoming").resolve("notification.json");
+        var bytes = NOTIFICATION.getBytes(StandardCharsets.UTF_8);
+        var factory = new DefaultDataBufferFactory();
+        Flux<DataBuffer> body = Flux.just(
+                factory.wrap(Arrays.copyOfRange(bytes, 0, 100)),
+                factory.wrap(Arrays.copyOfRange(bytes, 100, bytes.length)));
+
+        StepVerifier.create(localDataStore.writeToFile(body, spooledFile)
+                .then(localDataStore.readNotification(spooledFile)))
+                .assertNext(notification -> {
+                    assertThat(notification.getTransactionId()).isEqualTo("123456");
+                    assertThat(notification.getPageCount()).isEqualTo(1);
+                    assertThat(notification.getNumberOfEntries()).isEqualTo(3);
+                    assertThat(notification.getNumberOfInvalidEntries()).isEqualTo(1);
+                })
+                .verifyComplete();
+        assertThat(spooledFile.toFile()).hasContent(NOTIFICATION);
+    }
+
+    @Test
+    void shouldMoveSpooledFileToDataPartLocation() throws Exception {
+        var spooledFile = storagePath.resolve("incoming").resolve("notification.json");
+        var dataPartFile = storagePath.resolve("consent").resolve("transaction").resolve("part_1.json");
+        Files.createDirectories(spooledFile.getParent());
+        Files.writeString(spooledFile, NOTIFICATION);
+
+        StepVerifier.create(localDataStore.moveFile(spooledFile, dataPartFile)).verifyComplete();
+
+        assertThat(spooledFile).doesNotExist();
+        assertThat(dataPartFile.toFile()).hasContent(NOTIFICATION);
+    }
+}
@@ -0,0 +1,32 @@
+package in.org.projecteka.hiu.dataflow;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.org.projecteka.hiu.dataflow.model.DataEntry;
+import in.org.projecteka.hiu.dataflow.model.RawJson;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RawJsonTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void shouldWriteStoredBundleIntoTheResponseAsItIs() throws Exception {
+        var bundle = "{\"resourceType\":\"Bundle\",\"entry\":[{\"resource\":{\"id\":\"1\"}}]}";
+        var dataEntry = DataEntry.builder().docId("1.v1").data(RawJson.of(bundle)).build();
+
+        var json = objectMapper.writeValueAsString(dataEntry);
+
+        assertThat(json).contains("\"data\":" + bundle);
+        assertThat(objectMapper.readTree(json).get("data")).isEqualTo(objectMapper.readTree(bundle));
+    }
+
+    @Test
+    void shouldWriteMissingBundleAsNull() throws Exception {
+        var dataEntry = DataEntry.builder().docId("1.v1").data(RawJson.of(null)).build();
+
+        var json = objectMapper.writeValueAsString(dataEntry);
+
+        assertThat(objectMapper.readTree(json).get("data").isNull()).isTrue();
+    }
+}
@@ -0,0 +1,73 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AttachmentDownloaderTest {
+    private MockWebServer mockWebServer;
+    private AttachmentDownloader attachmentDownloader;
+
+    @TempDir
+    Path storagePath;
+
+    @BeforeEach
+    void setUp() {
+        mockWebServer = new MockWebServer();
+        attachmentDownloader = new AttachmentDownloader(2, 2, 2, Duration.ofSeconds(5), 1, 16);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        attachmentDownloader.close();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void shouldRetryFailedDownloadAndSaveAttachment() {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        mockWebServer.enqueue(new MockResponse().setBody("attachment"));
+        var target = storagePath.resolve("report.pdf");
+
+        var saved = attachmentDownloader.download(mockWebServer.url("/report").toString(), target).join();
+
+        assertThat(saved).isEqualTo(target);
+        assertThat(target.toFile()).hasContent("attachment");
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotKeepAttachmentLargerThanMaxSize() {
+        mockWebServer.enqueue(new MockResponse().setBody("attachment larger than the limit"));
+        var target = storagePath.resolve("report.pdf");
+
+        var download = attachmentDownloader.download(mockWebServer.url("/report").toString(), target);
+
+        assertThatThrownBy(download::join).isInstanceOf(CompletionException.class);
+        assertThat(target).doesNotExist();
+        assertThat(storagePath.resolve("report.pdf.part")).doesNotExist();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotRetryRefusedDownload() {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+        var target = storagePath.resolve("report.pdf");
+
+        var download = attachmentDownloader.download(mockWebServer.url("/report").toString(), target);
+
+        assertThatThrownBy(download::join).isInstanceOf(CompletionException.class);
+        assertThat(target).doesNotExist();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,96 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttachmentStoreTest {
+    private static final byte[] REPORT = "lab report".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path storagePath;
+
+    private final AttachmentStore attachmentStore = new AttachmentStore();
+
+    @Test
+    void shouldStoreSameContentOnceForAllTransactions() throws Exception {
+        var firstTransaction = Files.createDirectories(storagePath.resolve("consent").resolve("transaction-1"));
+        var secondTransaction = Files.createDirectories(storagePath.resolve("consent").resolve("transaction-2"));
+
+        var first = attachmentStore.save(REPORT, ".pdf", firstTransaction);
+        var second = attachmentStore.save(REPORT, ".pdf", secondTransaction);
+
+        assertThat(first.getFileName()).isEqualTo(second.getFileName());
+        assertThat(first.getFileName().toString()).endsWith(".pdf");
+        assertThat(first).hasBinaryContent(REPORT);
+        assertThat(second).hasBinaryContent(REPORT);
+        assertThat(Files.isSameFile(first, second)).isTrue();
+    }
+
+    @Test
+    void shouldReleaseStoredContentWithTheLastTransactionReferringToIt() throws Exception {
+        var firstTransaction = Files.createDirectories(storagePath.resolve("consent").resolve("transaction-1"));
+        var secondTransaction = Files.createDirectories(storagePath.resolve("consent").resolve("transaction-2"));
+        var first = attachmentStore.save(REPORT, ".pdf", firstTransaction);
+        attachmentStore.save(REPORT, ".pdf", secondTransaction);
+        var fileName = first.getFileName().toString();
+        var stored = storagePath.resolve(".attachments").resolve(fileName.substring(0, 2)).resolve(fileName);
+
+        attachmentStore.release(firstTransaction);
+        Files.delete(first);
+
+        assertThat(stored).exists();
+
+        attachmentStore.release(secondTransaction);
+
+        assertThat(stored).doesNotExist();
+    }
+
+    @Test
+    void shouldLinkStoredContentOncePerTransactionWithoutLeavingPartFiles() throws Exception {
+        var firstTransaction = Files.createDirectories(storagePath.resolve("consent").resolve("transaction-1"));
+        var secondTransaction = Files.createDirectories(storagePath.resolve("consent").resolve("transaction-2"));
+        var downloaded = Files.write(secondTransaction.resolve("download.pdf"), REPORT);
+
+        var first = attachmentStore.save(REPORT, ".pdf", firstTransaction);
+        attachmentStore.adopt(downloaded, ".pdf", secondTransaction);
+        var fileName = first.getFileName().toString();
+        var storeDirectory = storagePath.resolve(".attachments").resolve(fileName.substring(0, 2));
+
+        assertThat(Files.getAttribute(storeDirectory.resolve(fileName), "unix:nlink")).isEqualTo(3);
+        try (var storedFiles = Files.list(storeDirectory)) {
+            assertThat(storedFiles).containsExactly(storeDirectory.resolve(fileName));
+        }
+    }
+
+    @Test
+    void shouldStoreContentAgainOnceItWasReleased() throws Exception {
+        var firstTransaction = Files.createDirectories(storagePath.resolve("consent").resolve("transaction-1"));
+        var secondTransaction = Files.createDirectories(storagePath.resolve("consent").resolve("transaction-2"));
+        var first = attachmentStore.save(REPORT, ".pdf", firstTransaction);
+        attachmentStore.release(firstTransaction);
+        Files.delete(first);
+
+        var second = attachmentStore.save(REPORT, ".pdf", secondTransaction);
+
+        assertThat(second).hasBinaryContent(REPORT);
+        assertThat(Files.getAttribute(second, "unix:nlink")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldAdoptDownloadedFileIntoStore() throws Exception {
+        var transaction = Files.createDirectories(storagePath.resolve("consent").resolve("transaction-1"));
+        var downloaded = Files.write(transaction.resolve("download.pdf"), REPORT);
+
+        var adopted = attachmentStore.adopt(downloaded, ".pdf", transaction);
+
+        assertThat(downloaded).doesNotExist();
+        assertThat(adopted).isEqualTo(attachmentStore.save(REPORT, ".pdf", transaction));
+        assertThat(adopted).hasBinaryContent(REPORT);
+    }
+}
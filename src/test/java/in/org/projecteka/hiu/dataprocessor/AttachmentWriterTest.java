@@ -0,0 +1,40 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttachmentWriterTest {
+    @TempDir
+    Path storagePath;
+
+    @Test
+    void shouldWriteBytesAsTheyAreAndAccountForThem() throws Exception {
+        var data = new byte[256 * 1024];
+        new Random(42).nextBytes(data);
+        var target = storagePath.resolve("attachment.pdf");
+        long writtenBefore = AttachmentWriter.bytesWritten();
+
+        AttachmentWriter.write(data, target);
+
+        assertThat(target).hasBinaryContent(data);
+        assertThat(AttachmentWriter.bytesWritten() - writtenBefore).isGreaterThanOrEqualTo(data.length);
+        assertThat(AttachmentWriter.bytesPerSecond()).isPositive();
+    }
+
+    @Test
+    void shouldReplaceContentOfExistingFile() throws Exception {
+        var target = Files.writeString(storagePath.resolve("attachment.txt"), "a longer earlier content");
+        var data = "short".getBytes(StandardCharsets.UTF_8);
+
+        AttachmentWriter.write(data, target);
+
+        assertThat(target).hasBinaryContent(data);
+    }
+}
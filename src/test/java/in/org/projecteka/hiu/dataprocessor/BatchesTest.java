@@ -0,0 +1,32 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+class BatchesTest {
+    @Test
+    void shouldCloseBatchWhenItIsFull() {
+        StepVerifier.create(Batches.of(Flux.just(1, 2, 3, 4, 5), 2, Duration.ZERO))
+                .expectNext(List.of(1, 2), List.of(3, 4), List.of(5))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldCloseBatchAtFlushIntervalWhileItemsAreSlow() {
+        StepVerifier.withVirtualTime(() -> Batches.of(
+                Flux.concat(Flux.just(1, 2, 3), Mono.delay(Duration.ofSeconds(10)).thenReturn(4)),
+                2,
+                Duration.ofSeconds(1)))
+                .expectNext(List.of(1, 2))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNext(List.of(3))
+                .thenAwait(Duration.ofSeconds(9))
+                .expectNext(List.of(4))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,65 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import in.org.projecteka.hiu.dataflow.model.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataPartFileTest {
+    private static final String DATA_PART = "{\"pageNumber\":1,\"pageCount\":2,\"transactionId\":\"123456\"," +
+            "\"entries\":[{\"content\":\"VGhpcyBpcyBhIHN0cmluZw==\",\"media\":\"application/fhir+json\"," +
+            "\"checksum\":\"string\",\"careContextReference\":\"RVH1008\"},{\"link\":\"https://data-from.net/sa2321\"," +
+            "\"media\":\"application/fhir+json\",\"checksum\":\"string\",\"careContextReference\":\"NCC1701\"}]," +
+            "\"keyMaterial\":{\"cryptoAlg\":\"ECDH\",\"curve\":\"Curve25519\",\"dhPublicKey\":" +
+            "{\"expiry\":\"2021-02-23T06:01:08.552Z\",\"parameters\":\"Curve25519/32byte random key\"," +
+            "\"keyValue\":\"string\"},\"nonce\":\"3fa85f64-5717-4562-b3fc-2c963f66afa6\"}}";
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @TempDir
+    Path storagePath;
+
+    @Test
+    void shouldReadHeaderWithoutEntries() throws Exception {
+        var dataPart = Files.writeString(storagePath.resolve("part_1.json"), DATA_PART);
+
+        var header = new DataPartFile(dataPart, objectMapper).readHeader();
+
+        assertThat(header.getNumberOfEntries()).isEqualTo(2);
+        assertThat(header.getNotification().getTransactionId()).isEqualTo("123456");
+        assertThat(header.getNotification().getPageCount()).isEqualTo(2);
+        assertThat(header.getNotification().getEntries()).isNull();
+        assertThat(header.getNotification().getKeyMaterial().getNonce())
+                .isEqualTo("3fa85f64-5717-4562-b3fc-2c963f66afa6");
+        assertThat(header.getNotification().getKeyMaterial().getDhPublicKey().getKeyValue()).isEqualTo("string");
+    }
+
+    @Test
+    void shouldReadEntriesInOrderOneAtATime() throws Exception {
+        var dataPart = Files.writeString(storagePath.resolve("part_1.json"), DATA_PART);
+
+        StepVerifier.create(new DataPartFile(dataPart, objectMapper).entries().map(Entry::getCareContextReference), 1)
+                .expectNext("RVH1008")
+                .thenRequest(1)
+                .expectNext("NCC1701")
+                .thenRequest(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReadNoEntriesWhenPartHasNone() throws Exception {
+        var dataPart = Files.writeString(storagePath.resolve("part_1.json"), "{\"transactionId\":\"123456\"}");
+
+        assertThat(new DataPartFile(dataPart, objectMapper).readHeader().getNumberOfEntries()).isZero();
+        StepVerifier.create(new DataPartFile(dataPart, objectMapper).entries()).verifyComplete();
+    }
+}
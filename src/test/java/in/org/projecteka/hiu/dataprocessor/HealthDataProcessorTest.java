@@ -1,39 +1,58 @@
 package in.org.projecteka.hiu.dataprocessor;
 
+import ca.uhn.fhir.context.FhirContext;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import in.org.projecteka.hiu.HiuProperties;
 import in.org.projecteka.hiu.LocalDicomServerProperties;
 import in.org.projecteka.hiu.clients.HealthInformationClient;
 import in.org.projecteka.hiu.common.Gateway;
-import in.org.projecteka.hiu.consent.ConsentRepository;
 import in.org.projecteka.hiu.dataflow.DataFlowRepository;
 import in.org.projecteka.hiu.dataflow.Decryptor;
+import in.org.projecteka.hiu.dataflow.model.DataFlowRequestKeyMaterial;
 import in.org.projecteka.hiu.dataflow.model.DataNotificationRequest;
 import in.org.projecteka.hiu.dataflow.model.HealthInfoStatus;
+import in.org.projecteka.hiu.dataflow.model.TransactionMetadata;
 import in.org.projecteka.hiu.dataprocessor.model.DataAvailableMessage;
 import in.org.projecteka.hiu.dataprocessor.model.DataContext;
+import in.org.projecteka.hiu.dataprocessor.model.EntryStatus;
+import in.org.projecteka.hiu.dataprocessor.model.HealthDataRecord;
+import in.org.projecteka.hiu.dataprocessor.model.HealthInfoNotificationRequest;
+import in.org.projecteka.hiu.dataprocessor.model.HiStatus;
+import in.org.projecteka.hiu.dataprocessor.model.StatusResponse;
 import in.org.projecteka.hiu.dicomweb.OrthancDicomWebServer;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.stubbing.Answer;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 
 import static in.org.projecteka.hiu.dataflow.TestBuilders.dataFlowRequestKeyMaterial;
 import static in.org.projecteka.hiu.dataprocessor.TestBuilders.string;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -57,9 +76,6 @@ class HealthDataProcessorTest {
     @Mock
     private HiuProperties hiuProperties;
 
-    @Mock
-    private ConsentRepository consentRepository;
-
     @AfterAll
     public static void cleanUp() throws IOException {
         /**
@@ -88,6 +104,11 @@ class HealthDataProcessorTest {
         MockitoAnnotations.initMocks(this);
     }
 
+    @AfterEach
+    public void removeCheckpoints() throws IOException {
+        deleteGeneratedFiles("checkpoint");
+    }
+
     @Test
     public void shouldDeserializeDataNotificationRequestFromFile() throws Exception {
         Path filePath = Paths.get("src", "test", "resources", "Transaction123456.json");
@@ -98,8 +119,7 @@ class HealthDataProcessorTest {
                 new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties())),
                 new DocumentReferenceResourceProcessor(),
                 new MedicationRequestResourceProcessor());
-        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, decryptor,
-                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository);
+        HealthDataProcessor processor = healthDataProcessor(resourceProcessors, new DataProcessorProperties());
         String transactionId = "123456";
         String partNumber = "1";
         DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
@@ -109,30 +129,25 @@ class HealthDataProcessorTest {
         String cmId = "ncg";
         String token = string();
 
-        when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), eq("Bundle/11123232324.UNKNOWN"), any(), any()))
-                .thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
-                .thenReturn(Mono.empty());
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 0)).thenReturn(Mono.just(true));
+        when(healthDataRepository.saveEntries(eq(transactionId), eq(partNumber), any())).thenReturn(Mono.empty());
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
                 .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.decrypt(any(), any(), any(), any())).thenAnswer(decrypted(content));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
-        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
-        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
-        when(consentRepository.getConsentMangerId(consentId)).thenReturn(Mono.just(cmId));
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata(consentId, cmId, savedKeyMaterial)));
         when(healthInformationClient.notifyHealthInfo(any(), eq(token),eq(cmId))).thenReturn(Mono.empty());
 
-        processor.process(message);
+        StepVerifier.create(processor.processAsync(message, false)).verifyComplete();
 
         verify(healthInformationClient,times(1))
                 .notifyHealthInfo(any(),eq(token),eq(cmId));
-        verify(consentRepository,times(1))
-                .getHipId(eq(consentId));
-        verify(consentRepository,times(1))
-                .getConsentMangerId(eq(consentId));
-        verify(healthDataRepository, times(1)).insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), eq("Bundle/11123232324.UNKNOWN"), any(), eq("10000005"));
+        verify(dataFlowRepository, atLeastOnce()).getTransactionMetadata(eq(transactionId));
+        verify(healthDataRepository, times(1)).saveEntries(eq(transactionId),
+                eq(partNumber),
+                argThat(records -> records.size() == 1 && savedAs(records.get(0), "Bundle/11123232324.UNKNOWN", "10000005")));
         verify(dataFlowRepository, times(1))
                 .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any());
         verify(dataFlowRepository, times(1))
@@ -148,14 +163,7 @@ class HealthDataProcessorTest {
                 new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties())),
                 new DocumentReferenceResourceProcessor(),
                 new MedicationRequestResourceProcessor());
-        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository,
-                dataFlowRepository,
-                decryptor,
-                resourceProcessors,
-                healthInformationClient,
-                gateway,
-                hiuProperties,
-                consentRepository);
+        HealthDataProcessor processor = healthDataProcessor(resourceProcessors, new DataProcessorProperties());
         String transactionId = "123456";
         String partNumber = "1";
         DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
@@ -165,30 +173,25 @@ class HealthDataProcessorTest {
         String cmId = "ncg";
         String token = string();
 
-        when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), any(), any(), any())).thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
-                .thenReturn(Mono.empty());
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 0)).thenReturn(Mono.just(true));
+        when(healthDataRepository.saveEntries(eq(transactionId), eq(partNumber), any())).thenReturn(Mono.empty());
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
                 .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.decrypt(any(), any(), any(), any())).thenAnswer(decrypted(content));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
-        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
-        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
-        when(consentRepository.getConsentMangerId(consentId)).thenReturn(Mono.just(cmId));
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata(consentId, cmId, savedKeyMaterial)));
         when(healthInformationClient.notifyHealthInfo(any(), eq(token),eq(cmId))).thenReturn(Mono.empty());
 
-        processor.process(message);
+        StepVerifier.create(processor.processAsync(message, false)).verifyComplete();
 
         verify(healthInformationClient,times(1))
                 .notifyHealthInfo(any(),eq(token),eq(cmId));
-        verify(consentRepository,times(1))
-                .getHipId(eq(consentId));
-        verify(consentRepository,times(1))
-                .getConsentMangerId(eq(consentId));
-        verify(healthDataRepository, times(1)).insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(),
-                eq("Bundle/11123232324.UNKNOWN"), any(), eq("10000005"));
+        verify(dataFlowRepository, atLeastOnce()).getTransactionMetadata(eq(transactionId));
+        verify(healthDataRepository, times(1)).saveEntries(eq(transactionId),
+                eq(partNumber),
+                argThat(records -> records.size() == 1 && savedAs(records.get(0), "Bundle/11123232324.UNKNOWN", "10000005")));
         verify(dataFlowRepository, times(1))
                 .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any());
         verify(dataFlowRepository, times(1))
@@ -204,14 +207,7 @@ class HealthDataProcessorTest {
                 new DiagnosticReportResourceProcessor(new OrthancDicomWebServer(new LocalDicomServerProperties())),
                 new DocumentReferenceResourceProcessor(),
                 new MedicationRequestResourceProcessor());
-        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository,
-                dataFlowRepository,
-                decryptor,
-                resourceProcessors,
-                healthInformationClient,
-                gateway,
-                hiuProperties,
-                consentRepository);
+        HealthDataProcessor processor = healthDataProcessor(resourceProcessors, new DataProcessorProperties());
         String transactionId = "123456";
         String partNumber = "1";
         String consentId = "consentId";
@@ -221,30 +217,25 @@ class HealthDataProcessorTest {
         var savedKeyMaterial = dataFlowRequestKeyMaterial().build();
         String token = string();
 
-        when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), any(), any(), any())).thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys("123456")).thenReturn(Mono.just(savedKeyMaterial));
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 0)).thenReturn(Mono.just(true));
+        when(healthDataRepository.saveEntries(eq(transactionId), eq(partNumber), any())).thenReturn(Mono.empty());
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
                 .thenReturn(Mono.empty());
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
-                .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.decrypt(any(), any(), any(), any())).thenAnswer(decrypted(content));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
-        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
-        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
-        when(consentRepository.getConsentMangerId(consentId)).thenReturn(Mono.just(cmId));
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata(consentId, cmId, savedKeyMaterial)));
         when(healthInformationClient.notifyHealthInfo(any(), eq(token),eq(cmId))).thenReturn(Mono.empty());
 
-        processor.process(message);
+        StepVerifier.create(processor.processAsync(message, false)).verifyComplete();
 
         verify(healthInformationClient,times(1))
                 .notifyHealthInfo(any(),eq(token),eq(cmId));
-        verify(consentRepository,times(1))
-                .getHipId(eq(consentId));
-        verify(consentRepository,times(1))
-                .getConsentMangerId(eq(consentId));
-        verify(healthDataRepository, times(1)).insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(),
-                eq("Bundle/11123232324.UNKNOWN"), any(), eq("10000005"));
+        verify(dataFlowRepository, atLeastOnce()).getTransactionMetadata(eq(transactionId));
+        verify(healthDataRepository, times(1)).saveEntries(eq(transactionId),
+                eq(partNumber),
+                argThat(records -> records.size() == 1 && savedAs(records.get(0), "Bundle/11123232324.UNKNOWN", "10000005")));
         verify(dataFlowRepository, times(1))
                 .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any());
         verify(dataFlowRepository, times(1))
@@ -256,8 +247,7 @@ class HealthDataProcessorTest {
         Path filePath = Paths.get("src", "test", "resources", "TransactionDocRef101.json");
         String absolutePath = filePath.toFile().getAbsolutePath();
         List<HITypeResourceProcessor> resourceProcessors = Arrays.asList(new DocumentReferenceResourceProcessor());
-        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, decryptor,
-                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository);
+        HealthDataProcessor processor = healthDataProcessor(resourceProcessors, new DataProcessorProperties());
         String transactionId = "101";
         String partNumber = "1";
         DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
@@ -267,31 +257,25 @@ class HealthDataProcessorTest {
         String cmId = "ncg";
         String token = string();
 
-        when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), any(), any(), any()))
-                .thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys("101")).thenReturn(Mono.just(savedKeyMaterial));
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
-                .thenReturn(Mono.empty());
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 0)).thenReturn(Mono.just(true));
+        when(healthDataRepository.saveEntries(eq(transactionId), eq(partNumber), any())).thenReturn(Mono.empty());
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
                 .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.decrypt(any(), any(), any(), any())).thenAnswer(decrypted(content));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
-        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
-        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
-        when(consentRepository.getConsentMangerId(consentId)).thenReturn(Mono.just(cmId));
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata(consentId, cmId, savedKeyMaterial)));
         when(healthInformationClient.notifyHealthInfo(any(), eq(token),eq(cmId))).thenReturn(Mono.empty());
 
-        processor.process(message);
+        StepVerifier.create(processor.processAsync(message, false)).verifyComplete();
 
         verify(healthInformationClient,times(1))
                 .notifyHealthInfo(any(),eq(token),eq(cmId));
-        verify(consentRepository,times(1))
-                .getHipId(eq(consentId));
-        verify(consentRepository,times(1))
-                .getConsentMangerId(eq(consentId));
-        verify(healthDataRepository, times(1)).insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(),
-                eq("Bundle/89fb2983-9cef-4f67-baa2-4304f37c8ec8.UNKNOWN"), any(), eq("10000005"));
+        verify(dataFlowRepository, atLeastOnce()).getTransactionMetadata(eq(transactionId));
+        verify(healthDataRepository, times(1)).saveEntries(eq(transactionId),
+                eq(partNumber),
+                argThat(records -> records.size() == 1 && savedAs(records.get(0), "Bundle/89fb2983-9cef-4f67-baa2-4304f37c8ec8.UNKNOWN", "10000005")));
         verify(dataFlowRepository, times(1))
                 .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any());
         verify(dataFlowRepository, times(1))
@@ -308,8 +292,7 @@ class HealthDataProcessorTest {
                 new DocumentReferenceResourceProcessor(),
                 new MedicationRequestResourceProcessor(),
                 new BinaryResourceProcessor());
-        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, decryptor,
-                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository);
+        HealthDataProcessor processor = healthDataProcessor(resourceProcessors, new DataProcessorProperties());
         String transactionId = "102";
         String partNumber = "1";
         DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
@@ -319,31 +302,25 @@ class HealthDataProcessorTest {
         String cmId = "ncg";
         String token = string();
 
-        when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), any(), any(), any()))
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 0)).thenReturn(Mono.just(true));
+        when(healthDataRepository.saveEntries(eq(transactionId), eq(partNumber), any())).thenReturn(Mono.empty());
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
                 .thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys("102")).thenReturn(Mono.just(savedKeyMaterial));
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
-                .thenReturn(Mono.empty());
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
-                .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.decrypt(any(), any(), any(), any())).thenAnswer(decrypted(content));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
-        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
-        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
-        when(consentRepository.getConsentMangerId(consentId)).thenReturn(Mono.just(cmId));
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata(consentId, cmId, savedKeyMaterial)));
         when(healthInformationClient.notifyHealthInfo(any(), eq(token),eq(cmId))).thenReturn(Mono.empty());
 
-        processor.process(message);
+        StepVerifier.create(processor.processAsync(message, false)).verifyComplete();
 
         verify(healthInformationClient,times(1))
                 .notifyHealthInfo(any(),eq(token),eq(cmId));
-        verify(consentRepository,times(1))
-                .getHipId(eq(consentId));
-        verify(consentRepository,times(1))
-                .getConsentMangerId(eq(consentId));
-        verify(healthDataRepository, times(1)).insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(),
-                eq("Bundle/bundle-01.UNKNOWN"), any(), eq("10000005"));
+        verify(dataFlowRepository, atLeastOnce()).getTransactionMetadata(eq(transactionId));
+        verify(healthDataRepository, times(1)).saveEntries(eq(transactionId),
+                eq(partNumber),
+                argThat(records -> records.size() == 1 && savedAs(records.get(0), "Bundle/bundle-01.UNKNOWN", "10000005")));
         verify(dataFlowRepository, times(1))
                 .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any());
         verify(dataFlowRepository, times(1))
@@ -360,8 +337,7 @@ class HealthDataProcessorTest {
                 new DocumentReferenceResourceProcessor(),
                 new MedicationRequestResourceProcessor(),
                 new BinaryResourceProcessor());
-        HealthDataProcessor processor = new HealthDataProcessor(healthDataRepository, dataFlowRepository, decryptor,
-                resourceProcessors, healthInformationClient, gateway, hiuProperties, consentRepository);
+        HealthDataProcessor processor = healthDataProcessor(resourceProcessors, new DataProcessorProperties());
         String transactionId = "103";
         String partNumber = "1";
         DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
@@ -371,37 +347,256 @@ class HealthDataProcessorTest {
         String cmId = "ncg";
         String token = string();
 
-        when(healthDataRepository.insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(), any(), any(), any()))
-                .thenReturn(Mono.empty());
-        when(dataFlowRepository.getKeys(transactionId)).thenReturn(Mono.just(savedKeyMaterial));
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any()))
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 0)).thenReturn(Mono.just(true));
+        when(healthDataRepository.saveEntries(eq(transactionId), eq(partNumber), any())).thenReturn(Mono.empty());
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
                 .thenReturn(Mono.empty());
-        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any()))
-                .thenReturn(Mono.empty());
-        when(decryptor.decrypt(any(), any(), any())).thenReturn(content);
+        when(decryptor.decrypt(any(), any(), any(), any())).thenAnswer(decrypted(content));
         when(gateway.token()).thenReturn(Mono.just(token));
         when(hiuProperties.getId()).thenReturn(string());
-        when(dataFlowRepository.getConsentId(transactionId)).thenReturn(Mono.just(consentId));
-        when(consentRepository.getHipId(consentId)).thenReturn(Mono.just("10000005"));
-        when(consentRepository.getConsentMangerId(consentId)).thenReturn(Mono.just(cmId));
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata(consentId, cmId, savedKeyMaterial)));
         when(healthInformationClient.notifyHealthInfo(any(), eq(token),eq(cmId))).thenReturn(Mono.empty());
 
-        processor.process(message);
+        StepVerifier.create(processor.processAsync(message, false)).verifyComplete();
 
         verify(healthInformationClient,times(1))
                 .notifyHealthInfo(any(),eq(token),eq(cmId));
-        verify(consentRepository,times(1))
-                .getHipId(eq(consentId));
-        verify(consentRepository,times(1))
-                .getConsentMangerId(eq(consentId));
-        verify(healthDataRepository, times(1)).insertDataFor(eq(transactionId), eq(partNumber), any(), any(), any(),
-                eq("Bundle/bundle-01.UNKNOWN"), any(), eq("10000005"));
+        verify(dataFlowRepository, atLeastOnce()).getTransactionMetadata(eq(transactionId));
+        verify(healthDataRepository, times(1)).saveEntries(eq(transactionId),
+                eq(partNumber),
+                argThat(records -> records.size() == 1 && savedAs(records.get(0), "Bundle/bundle-01.UNKNOWN", "10000005")));
         verify(dataFlowRepository, times(1))
                 .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.SUCCEEDED), any());
         verify(dataFlowRepository, times(1))
                 .updateDataFlowWithStatus(eq(transactionId), eq(partNumber), eq(""), eq(HealthInfoStatus.PROCESSING), any());
     }
 
+    @Test
+    public void shouldReportEntryStatusesInEntryOrderWhenProcessingEntriesInParallel(@TempDir Path tempDir)
+            throws Exception {
+        Path sourcePath = Paths.get("src", "test", "resources", "Transaction123456.json");
+        var objectMapper = new ObjectMapper();
+        var notification = objectMapper.readValue(sourcePath.toFile(), DataNotificationRequest.class);
+        var validEntry = notification.getEntries().get(0);
+        notification.setEntries(List.of(
+                validEntry.toBuilder().careContextReference("cc-1").build(),
+                validEntry.toBuilder().careContextReference("cc-2").media("text/plain").build(),
+                validEntry.toBuilder().careContextReference("cc-3").build()));
+        Path filePath = tempDir.resolve("Transaction123456.json");
+        objectMapper.writeValue(filePath.toFile(), notification);
+        List<HITypeResourceProcessor> resourceProcessors = List.of(new CompositionResourceProcessor());
+        var dataProcessorProperties = new DataProcessorProperties();
+        dataProcessorProperties.setEntryParallelism(3);
+        dataProcessorProperties.setInsertBatchSize(3);
+        HealthDataProcessor processor = healthDataProcessor(resourceProcessors, dataProcessorProperties);
+        String transactionId = "123456";
+        String partNumber = "1";
+        DataAvailableMessage message = new DataAvailableMessage(transactionId, filePath.toString(), partNumber);
+        var content = validEntry.getContent().replaceAll("\n", "");
+        String consentId = "consentId";
+        String cmId = "ncg";
+        String token = string();
+        var notificationCaptor = ArgumentCaptor.forClass(HealthInfoNotificationRequest.class);
+
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 0)).thenReturn(Mono.just(true));
+        when(healthDataRepository.saveEntries(eq(transactionId), eq(partNumber), any())).thenReturn(Mono.empty());
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
+                .thenReturn(Mono.empty());
+        when(decryptor.decrypt(any(), any(), any(), any())).thenAnswer(decrypted(content));
+        when(gateway.token()).thenReturn(Mono.just(token));
+        when(hiuProperties.getId()).thenReturn(string());
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata(consentId, cmId, dataFlowRequestKeyMaterial().build())));
+        when(healthInformationClient.notifyHealthInfo(notificationCaptor.capture(), eq(token), eq(cmId)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(processor.processAsync(message, false)).verifyComplete();
+
+        var statusResponses = notificationCaptor.getValue().getNotification().getStatusNotification()
+                .getStatusResponses();
+        assertThat(statusResponses).extracting(StatusResponse::getCareContextReference)
+                .containsExactly("cc-1", "cc-2", "cc-3");
+        assertThat(statusResponses).extracting(StatusResponse::getHiStatus)
+                .containsExactly(HiStatus.OK, HiStatus.ERRORED, HiStatus.OK);
+        verify(healthDataRepository, times(1)).saveEntries(eq(transactionId),
+                eq(partNumber),
+                argThat(records -> records.stream().map(HealthDataRecord::getEntryStatus).sorted().collect(toList())
+                        .equals(List.of(EntryStatus.SUCCEEDED, EntryStatus.SUCCEEDED, EntryStatus.ERRORED))));
+        verify(dataFlowRepository, times(1)).updateDataFlowWithStatus(eq(transactionId),
+                eq(partNumber),
+                any(),
+                eq(HealthInfoStatus.PARTIAL),
+                any());
+    }
+
+    @Test
+    public void shouldLeavePartProcessingWhenSavingHealthDataFailsBeforeItsLastAttempt() throws Exception {
+        Path filePath = Paths.get("src", "test", "resources", "Transaction123456.json");
+        String absolutePath = filePath.toFile().getAbsolutePath();
+        List<HITypeResourceProcessor> resourceProcessors = List.of(new CompositionResourceProcessor());
+        HealthDataProcessor processor = healthDataProcessor(resourceProcessors, new DataProcessorProperties());
+        String transactionId = "123456";
+        String partNumber = "1";
+        DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
+        var content = getFHIRResource(message).getNotifiedData().getEntries().get(0).getContent().replaceAll("\n","");
+        String consentId = "consentId";
+
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 0)).thenReturn(Mono.just(true));
+        when(healthDataRepository.saveEntries(any(), any(), any()))
+                .thenReturn(Mono.error(new RuntimeException("connection reset")));
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
+                .thenReturn(Mono.empty());
+        when(decryptor.decrypt(any(), any(), any(), any())).thenAnswer(decrypted(content));
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata(consentId, null, dataFlowRequestKeyMaterial().build())));
+
+        StepVerifier.create(processor.processAsync(message, false)).verifyErrorMessage("connection reset");
+
+        verify(dataFlowRepository, times(1)).updateDataFlowWithStatus(eq(transactionId),
+                eq(partNumber),
+                eq(""),
+                eq(HealthInfoStatus.PROCESSING),
+                any());
+        verify(dataFlowRepository, never()).updateDataFlowWithStatus(any(), any(), any(), eq(HealthInfoStatus.ERRORED), any());
+        verify(healthInformationClient, never()).notifyHealthInfo(any(), any(), any());
+    }
+
+    @Test
+    public void shouldMarkPartAsErroredWhenSavingHealthDataFailsOnItsLastAttempt() throws Exception {
+        Path filePath = Paths.get("src", "test", "resources", "Transaction123456.json");
+        String absolutePath = filePath.toFile().getAbsolutePath();
+        List<HITypeResourceProcessor> resourceProcessors = List.of(new CompositionResourceProcessor());
+        HealthDataProcessor processor = healthDataProcessor(resourceProcessors, new DataProcessorProperties());
+        String transactionId = "123456";
+        String partNumber = "1";
+        DataAvailableMessage message = new DataAvailableMessage(transactionId, absolutePath, partNumber);
+        var content = getFHIRResource(message).getNotifiedData().getEntries().get(0).getContent().replaceAll("\n","");
+        String consentId = "consentId";
+
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 0)).thenReturn(Mono.just(true));
+        when(healthDataRepository.saveEntries(any(), any(), any()))
+                .thenReturn(Mono.error(new RuntimeException("connection reset")));
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
+                .thenReturn(Mono.empty());
+        when(decryptor.decrypt(any(), any(), any(), any())).thenAnswer(decrypted(content));
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata(consentId, null, dataFlowRequestKeyMaterial().build())));
+
+        StepVerifier.create(processor.processAsync(message, true)).verifyErrorMessage("connection reset");
+
+        verify(dataFlowRepository, times(1)).updateDataFlowWithStatus(eq(transactionId),
+                eq(partNumber),
+                eq("connection reset"),
+                eq(HealthInfoStatus.ERRORED),
+                any());
+        verify(healthInformationClient, never()).notifyHealthInfo(any(), any(), any());
+    }
+
+    @Test
+    public void shouldKeepCheckpointWhenGatewayCouldNotBeNotified(@TempDir Path tempDir) throws Exception {
+        Path filePath = tempDir.resolve("Transaction123456.json");
+        Files.copy(Paths.get("src", "test", "resources", "Transaction123456.json"), filePath);
+        HealthDataProcessor processor = healthDataProcessor(List.of(new CompositionResourceProcessor()),
+                new DataProcessorProperties());
+        String transactionId = "123456";
+        String partNumber = "1";
+        DataAvailableMessage message = new DataAvailableMessage(transactionId, filePath.toString(), partNumber);
+        var content = getFHIRResource(message).getNotifiedData().getEntries().get(0).getContent().replaceAll("\n","");
+        String cmId = "ncg";
+        String token = string();
+
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 0)).thenReturn(Mono.just(true));
+        when(healthDataRepository.saveEntries(eq(transactionId), eq(partNumber), any())).thenReturn(Mono.empty());
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
+                .thenReturn(Mono.empty());
+        when(decryptor.decrypt(any(), any(), any(), any())).thenAnswer(decrypted(content));
+        when(gateway.token()).thenReturn(Mono.just(token));
+        when(hiuProperties.getId()).thenReturn(string());
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata("consentId", cmId, dataFlowRequestKeyMaterial().build())));
+        when(healthInformationClient.notifyHealthInfo(any(), eq(token), eq(cmId)))
+                .thenReturn(Mono.error(new RuntimeException("gateway unavailable")));
+
+        StepVerifier.create(processor.processAsync(message, false)).verifyErrorMessage("gateway unavailable");
+
+        verify(dataFlowRepository, times(1)).updateDataFlowWithStatus(eq(transactionId),
+                eq(partNumber),
+                eq(""),
+                eq(HealthInfoStatus.SUCCEEDED),
+                any());
+        assertThat(tempDir.resolve("Transaction123456.json.checkpoint")).exists();
+    }
+
+    @Test
+    public void shouldMarkPartAsErroredAndDropItsCheckpointWhenItsEntriesAreMalformed(@TempDir Path tempDir) throws Exception {
+        Path filePath = tempDir.resolve("Transaction123456.json");
+        Files.writeString(filePath, "{\"transactionId\":\"123456\",\"entries\":[{\"media\":[\"application/fhir+json\"]}]}");
+        Path checkpointFile = tempDir.resolve("Transaction123456.json.checkpoint");
+        Files.writeString(checkpointFile, "{\"index\":0,\"errors\":[]}\n");
+        HealthDataProcessor processor = healthDataProcessor(List.of(new CompositionResourceProcessor()),
+                new DataProcessorProperties());
+        String transactionId = "123456";
+        String partNumber = "1";
+        DataAvailableMessage message = new DataAvailableMessage(transactionId, filePath.toString(), partNumber);
+
+        when(healthDataRepository.startDataPart(transactionId, partNumber, 1)).thenReturn(Mono.just(true));
+        when(dataFlowRepository.updateDataFlowWithStatus(eq(transactionId), eq(partNumber), any(), any(), any()))
+                .thenReturn(Mono.empty());
+        when(dataFlowRepository.getTransactionMetadata(transactionId))
+                .thenReturn(Mono.just(transactionMetadata("consentId", "ncg", dataFlowRequestKeyMaterial().build())));
+
+        StepVerifier.create(processor.processAsync(message, false)).verifyComplete();
+
+        verify(dataFlowRepository, times(1)).updateDataFlowWithStatus(eq(transactionId),
+                eq(partNumber),
+                any(),
+                eq(HealthInfoStatus.ERRORED),
+                any());
+        verify(healthDataRepository, never()).saveEntries(any(), any(), any());
+        assertThat(checkpointFile).doesNotExist();
+    }
+
+    private HealthDataProcessor healthDataProcessor(List<HITypeResourceProcessor> resourceProcessors,
+                                                    DataProcessorProperties dataProcessorProperties) {
+        var transactionMetadataCache = new TransactionMetadataCache(dataFlowRepository, 10, Duration.ofMinutes(1));
+        return new HealthDataProcessor(healthDataRepository,
+                dataFlowRepository,
+                decryptor,
+                new ResourceProcessorRegistry(resourceProcessors),
+                healthInformationClient,
+                hiuProperties,
+                transactionMetadataCache,
+                FhirContext.forR4(),
+                dataProcessorProperties,
+                new HealthInfoNotificationDispatcher(gateway,
+                        transactionMetadataCache,
+                        healthInformationClient,
+                        0,
+                        Duration.ZERO));
+    }
+
+    private TransactionMetadata transactionMetadata(String consentId,
+                                                    String cmId,
+                                                    DataFlowRequestKeyMaterial keyMaterial) {
+        return TransactionMetadata.builder()
+                .consentId(consentId)
+                .hipId("10000005")
+                .consentManagerId(cmId)
+                .keyMaterial(keyMaterial)
+                .build();
+    }
+
+    private static Answer<Object> decrypted(String content) {
+        return invocation -> invocation.<Decryptor.PlainTextReader<?>>getArgument(3).read(new StringReader(content));
+    }
+
+    private boolean savedAs(HealthDataRecord record, String docId, String docOrigin) {
+        return record.getEntryStatus() == EntryStatus.SUCCEEDED
+                && docId.equals(record.getDocId())
+                && docOrigin.equals(record.getDocOrigin());
+    }
+
     private DataContext getFHIRResource(DataAvailableMessage message) {
         Path dataFilePath = Paths.get(message.getPathToFile());
         try (InputStream inputStream = Files.newInputStream(dataFilePath)) {
@@ -0,0 +1,98 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import in.org.projecteka.hiu.clients.HealthInformationClient;
+import in.org.projecteka.hiu.common.Gateway;
+import in.org.projecteka.hiu.dataflow.model.TransactionMetadata;
+import in.org.projecteka.hiu.dataprocessor.model.HealthInfoNotificationRequest;
+import in.org.projecteka.hiu.dataprocessor.model.Notification;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static in.org.projecteka.hiu.dataprocessor.TestBuilders.string;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HealthInfoNotificationDispatcherTest {
+    @Mock
+    private Gateway gateway;
+    @Mock
+    private TransactionMetadataCache transactionMetadataCache;
+    @Mock
+    private HealthInformationClient healthInformationClient;
+
+    private HealthInfoNotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        dispatcher = new HealthInfoNotificationDispatcher(gateway,
+                transactionMetadataCache,
+                healthInformationClient,
+                2,
+                Duration.ofMillis(1));
+    }
+
+    @Test
+    void shouldRetryNotificationWhenGatewayFails() {
+        var token = string();
+        var notificationRequest = HealthInfoNotificationRequest.builder()
+                .requestId(UUID.randomUUID())
+                .notification(Notification.builder().consentId("consentId").transactionId("transactionId").build())
+                .build();
+        when(gateway.token()).thenReturn(Mono.just(token));
+        when(transactionMetadataCache.metadataFor("transactionId"))
+                .thenReturn(Mono.just(TransactionMetadata.builder().consentManagerId("ncg").build()));
+        when(healthInformationClient.notifyHealthInfo(any(), eq(token), eq("ncg")))
+                .thenReturn(Mono.error(new RuntimeException("gateway timed out")))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(dispatcher.send(notificationRequest)).verifyComplete();
+
+        verify(healthInformationClient, times(2)).notifyHealthInfo(eq(notificationRequest), eq(token), eq("ncg"));
+    }
+
+    @Test
+    void shouldFailNotificationOnceRetriesAreExhausted() {
+        var token = string();
+        var notificationRequest = HealthInfoNotificationRequest.builder()
+                .requestId(UUID.randomUUID())
+                .notification(Notification.builder().consentId("consentId").transactionId("transactionId").build())
+                .build();
+        when(gateway.token()).thenReturn(Mono.just(token));
+        when(transactionMetadataCache.metadataFor("transactionId"))
+                .thenReturn(Mono.just(TransactionMetadata.builder().consentManagerId("ncg").build()));
+        when(healthInformationClient.notifyHealthInfo(any(), eq(token), eq("ncg")))
+                .thenReturn(Mono.error(new RuntimeException("gateway timed out")));
+
+        StepVerifier.create(dispatcher.send(notificationRequest)).verifyError();
+
+        verify(healthInformationClient, times(3)).notifyHealthInfo(eq(notificationRequest), eq(token), eq("ncg"));
+    }
+
+    @Test
+    void shouldFailNotificationWithoutRetryingWhenTransactionHasNoConsentManager() {
+        var notificationRequest = HealthInfoNotificationRequest.builder()
+                .requestId(UUID.randomUUID())
+                .notification(Notification.builder().consentId("consentId").transactionId("transactionId").build())
+                .build();
+        when(gateway.token()).thenReturn(Mono.just(string()));
+        when(transactionMetadataCache.metadataFor("transactionId"))
+                .thenReturn(Mono.just(TransactionMetadata.builder().build()));
+
+        StepVerifier.create(dispatcher.send(notificationRequest)).verifyError(IllegalStateException.class);
+
+        verify(transactionMetadataCache, times(1)).metadataFor("transactionId");
+        verify(healthInformationClient, never()).notifyHealthInfo(any(), any(), any());
+    }
+}
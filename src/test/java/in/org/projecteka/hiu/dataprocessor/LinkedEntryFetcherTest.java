@@ -0,0 +1,94 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import in.org.projecteka.hiu.clients.HealthInformation;
+import in.org.projecteka.hiu.clients.HealthInformationClient;
+import in.org.projecteka.hiu.dataflow.model.Entry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuple2;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LinkedEntryFetcherTest {
+    private MockWebServer mockWebServer;
+    private LinkedEntryFetcher linkedEntryFetcher;
+
+    @TempDir
+    Path partDirectory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+        var healthInformationClient = new HealthInformationClient(WebClient.builder(), null);
+        linkedEntryFetcher = new LinkedEntryFetcher(healthInformationClient, 2, 4);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void shouldFetchLinkedEntriesToFilesAndKeepTheirPositionInPart() throws Exception {
+        mockWebServer.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"content\":\"encrypted\",\"transactionId\":\"123456\"}"));
+        var inline = Entry.builder().content("inline").careContextReference("cc-1").build();
+        var linked = Entry.builder().link(mockWebServer.url("/health-information/1").toString())
+                .careContextReference("cc-2")
+                .build();
+
+        var fetched = linkedEntryFetcher.prefetch(Flux.just(inline, linked).index(), partDirectory)
+                .collectSortedList(Comparator.comparing(Tuple2::getT1))
+                .block();
+
+        assertThat(fetched).extracting(Tuple2::getT1).containsExactly(0L, 1L);
+        assertThat(fetched.get(0).getT2().isFetched()).isFalse();
+        assertThat(fetched.get(0).getT2().getEntry()).isEqualTo(inline);
+        var fetchedEntry = fetched.get(1).getT2();
+        assertThat(fetchedEntry.isFetched()).isTrue();
+        assertThat(fetchedEntry.getContent()).startsWith(partDirectory);
+        assertThat(fetchedEntry.read().map(HealthInformation::getContent)).contains("encrypted");
+        assertThat(fetchedEntry.getContent()).doesNotExist();
+    }
+
+    @Test
+    void shouldFailWhenLinkedEntryCanNotBeFetched() {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404).setBody("not found"));
+        var linked = Entry.builder().link(mockWebServer.url("/health-information/1").toString()).build();
+
+        var fetched = linkedEntryFetcher.prefetch(Flux.just(linked).index(), partDirectory);
+
+        StepVerifier.create(fetched).verifyError();
+        assertThat(partDirectory.toFile().list()).isEmpty();
+    }
+
+    @Test
+    void shouldRemoveFetchedEntriesNotReadWhenDirectoryIsClosed() {
+        mockWebServer.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"content\":\"encrypted\",\"transactionId\":\"123456\"}"));
+        var linked = Entry.builder().link(mockWebServer.url("/health-information/1").toString()).build();
+        var dataFile = partDirectory.resolve("Transaction123456.json");
+        var linksDirectory = linkedEntryFetcher.openDirectory(dataFile).block();
+
+        var fetched = linkedEntryFetcher.prefetch(Flux.just(linked).index(), linksDirectory).blockFirst();
+
+        assertThat(fetched.getT2().getContent()).startsWith(linksDirectory).exists();
+
+        linkedEntryFetcher.closeDirectory(linksDirectory).block();
+
+        assertThat(linksDirectory).doesNotExist();
+    }
+}
@@ -0,0 +1,113 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import in.org.projecteka.hiu.dataflow.model.Entry;
+import in.org.projecteka.hiu.dataprocessor.model.EntrySummary;
+import in.org.projecteka.hiu.dataprocessor.model.HiStatus;
+import in.org.projecteka.hiu.dataprocessor.model.StatusResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.util.function.Tuples;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartCheckpointTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(WRITE_DATES_AS_TIMESTAMPS, false)
+            .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @TempDir
+    Path transactionDirectory;
+
+    @Test
+    void shouldResumeEntriesSavedByEarlierDelivery() throws Exception {
+        var dataFile = transactionDirectory.resolve("Transaction123456.json");
+        var saved = new EntrySummary(0,
+                new StatusResponse("cc-1", HiStatus.OK, "Data received successfully"),
+                List.of(),
+                LocalDateTime.of(2020, 1, 1, 10, 0));
+        PartCheckpoint.open(dataFile, objectMapper).record(List.of(saved));
+
+        var checkpoint = PartCheckpoint.open(dataFile, objectMapper);
+
+        assertThat(checkpoint.size()).isEqualTo(1);
+        assertThat(checkpoint.isPending(Tuples.of(0L, Entry.builder().build()))).isFalse();
+        assertThat(checkpoint.isPending(Tuples.of(1L, Entry.builder().build()))).isTrue();
+        assertThat(checkpoint.resumed()).hasSize(1);
+        var resumed = checkpoint.resumed().get(0);
+        assertThat(resumed.getIndex()).isEqualTo(0L);
+        assertThat(resumed.getStatusResponse().getHiStatus()).isEqualTo(HiStatus.OK);
+        assertThat(resumed.getLatestResourceDate()).isEqualTo(LocalDateTime.of(2020, 1, 1, 10, 0));
+    }
+
+    @Test
+    void shouldProcessEntryAgainWhenItsCheckpointIsTorn() throws Exception {
+        var dataFile = transactionDirectory.resolve("Transaction123456.json");
+        var failed = new EntrySummary(0,
+                new StatusResponse("cc-1", HiStatus.ERRORED, "Couldn't receive data"),
+                List.of("Could not read encrypted content from file"),
+                null);
+        PartCheckpoint.open(dataFile, objectMapper).record(List.of(failed));
+        Files.write(dataFile.resolveSibling("Transaction123456.json.checkpoint"),
+                "{\"index\":1,\"statusRes".getBytes(StandardCharsets.UTF_8), APPEND);
+
+        var checkpoint = PartCheckpoint.open(dataFile, objectMapper);
+
+        assertThat(checkpoint.size()).isEqualTo(1);
+        assertThat(checkpoint.isPending(Tuples.of(0L, Entry.builder().build()))).isFalse();
+        assertThat(checkpoint.isPending(Tuples.of(1L, Entry.builder().build()))).isTrue();
+        assertThat(checkpoint.resumed()).extracting(EntrySummary::getErrors)
+                .containsExactly(List.of("Could not read encrypted content from file"));
+    }
+
+    @Test
+    void shouldStopCheckpointingOnceABatchCouldNotBeWritten() throws Exception {
+        var dataFile = transactionDirectory.resolve("Transaction123456.json");
+        var checkpointFile = transactionDirectory.resolve("Transaction123456.json.checkpoint");
+        var checkpoint = PartCheckpoint.open(dataFile, objectMapper);
+        Files.createDirectory(checkpointFile);
+
+        checkpoint.record(List.of(new EntrySummary(0, new StatusResponse(), List.of(), null)));
+        Files.delete(checkpointFile);
+        checkpoint.record(List.of(new EntrySummary(1, new StatusResponse(), List.of(), null)));
+
+        assertThat(checkpointFile).doesNotExist();
+    }
+
+    @Test
+    void shouldTakeNoEntryAsSavedOnceRestarted() throws Exception {
+        var dataFile = transactionDirectory.resolve("Transaction123456.json");
+        PartCheckpoint.open(dataFile, objectMapper)
+                .record(List.of(new EntrySummary(0, new StatusResponse(), List.of(), null)));
+        var checkpoint = PartCheckpoint.open(dataFile, objectMapper);
+
+        checkpoint.restart();
+
+        assertThat(checkpoint.size()).isZero();
+        assertThat(checkpoint.isPending(Tuples.of(0L, Entry.builder().build()))).isTrue();
+        assertThat(checkpoint.resumed()).isEmpty();
+        assertThat(transactionDirectory.resolve("Transaction123456.json.checkpoint")).doesNotExist();
+    }
+
+    @Test
+    void shouldRemoveCheckpointOncePartIsSaved() throws Exception {
+        var dataFile = transactionDirectory.resolve("Transaction123456.json");
+        var checkpoint = PartCheckpoint.open(dataFile, objectMapper);
+        checkpoint.record(List.of(new EntrySummary(0, new StatusResponse(), List.of(), null)));
+
+        checkpoint.delete();
+
+        assertThat(transactionDirectory.resolve("Transaction123456.json.checkpoint")).doesNotExist();
+    }
+}
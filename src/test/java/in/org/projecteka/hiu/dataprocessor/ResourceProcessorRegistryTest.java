@@ -0,0 +1,27 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import org.hl7.fhir.r4.model.ResourceType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResourceProcessorRegistryTest {
+    @Test
+    void shouldResolveProcessorForSupportedResourceType() {
+        var observationProcessor = new ObservationResourceProcessor();
+        var registry = new ResourceProcessorRegistry(List.of(new CompositionResourceProcessor(), observationProcessor));
+
+        assertThat(registry.forType(ResourceType.Observation)).isSameAs(observationProcessor);
+        assertThat(registry.supports(ResourceType.Composition)).isTrue();
+    }
+
+    @Test
+    void shouldReturnNullForUnsupportedResourceType() {
+        var registry = new ResourceProcessorRegistry(List.of(new ObservationResourceProcessor()));
+
+        assertThat(registry.forType(ResourceType.Patient)).isNull();
+        assertThat(registry.supports(ResourceType.Patient)).isFalse();
+    }
+}
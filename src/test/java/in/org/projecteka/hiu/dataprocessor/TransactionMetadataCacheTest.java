@@ -0,0 +1,82 @@
+package in.org.projecteka.hiu.dataprocessor;
+
+import in.org.projecteka.hiu.dataflow.DataFlowRepository;
+import in.org.projecteka.hiu.dataflow.model.TransactionMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static in.org.projecteka.hiu.dataflow.TestBuilders.dataFlowRequestKeyMaterial;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionMetadataCacheTest {
+    @Mock
+    private DataFlowRepository dataFlowRepository;
+
+    private TransactionMetadataCache transactionMetadataCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        transactionMetadataCache = new TransactionMetadataCache(dataFlowRepository, 10, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldLookUpMetadataOnceForAllPartsOfTransaction() {
+        var metadata = TransactionMetadata.builder()
+                .consentId("consentId")
+                .hipId("10000005")
+                .consentManagerId("ncg")
+                .keyMaterial(dataFlowRequestKeyMaterial().build())
+                .build();
+        when(dataFlowRepository.getTransactionMetadata("transactionId")).thenReturn(Mono.just(metadata));
+
+        StepVerifier.create(transactionMetadataCache.metadataFor("transactionId")).expectNext(metadata).verifyComplete();
+        StepVerifier.create(transactionMetadataCache.metadataFor("transactionId")).expectNext(metadata).verifyComplete();
+
+        verify(dataFlowRepository, times(1)).getTransactionMetadata("transactionId");
+    }
+
+    @Test
+    void shouldLookUpMetadataAgainWhenKeysWereNotSavedYet() {
+        var withoutKeys = TransactionMetadata.builder()
+                .consentId("consentId")
+                .hipId("10000005")
+                .consentManagerId("ncg")
+                .build();
+        var metadata = TransactionMetadata.builder()
+                .consentId("consentId")
+                .hipId("10000005")
+                .consentManagerId("ncg")
+                .keyMaterial(dataFlowRequestKeyMaterial().build())
+                .build();
+        when(dataFlowRepository.getTransactionMetadata("transactionId"))
+                .thenReturn(Mono.just(withoutKeys), Mono.just(metadata));
+
+        StepVerifier.create(transactionMetadataCache.metadataFor("transactionId"))
+                .expectNext(withoutKeys)
+                .verifyComplete();
+        StepVerifier.create(transactionMetadataCache.metadataFor("transactionId")).expectNext(metadata).verifyComplete();
+        StepVerifier.create(transactionMetadataCache.metadataFor("transactionId")).expectNext(metadata).verifyComplete();
+
+        verify(dataFlowRepository, times(2)).getTransactionMetadata("transactionId");
+    }
+
+    @Test
+    void shouldLookUpMetadataAgainWhenLookupFailed() {
+        when(dataFlowRepository.getTransactionMetadata("transactionId"))
+                .thenReturn(Mono.error(new RuntimeException("connection reset")));
+
+        StepVerifier.create(transactionMetadataCache.metadataFor("transactionId")).verifyError();
+        StepVerifier.create(transactionMetadataCache.metadataFor("transactionId")).verifyError();
+
+        verify(dataFlowRepository, times(2)).getTransactionMetadata("transactionId");
+    }
+}
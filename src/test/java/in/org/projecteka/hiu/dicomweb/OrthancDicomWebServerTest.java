@@ -0,0 +1,89 @@
+package in.org.projecteka.hiu.dicomweb;
+
+import in.org.projecteka.hiu.LocalDicomServerProperties;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrthancDicomWebServerTest {
+    private static final String INSTANCE = "{\"ID\":\"instance-1\",\"ParentStudy\":\"study-1\",\"Status\":\"Success\"}";
+    private static final String STUDY = "{\"ID\":\"study-1\",\"MainDicomTags\":{\"StudyInstanceUID\":\"1.2.840.1\"}}";
+
+    private MockWebServer mockWebServer;
+    private OrthancDicomWebServer dicomWebServer;
+    private final AtomicInteger studyLookups = new AtomicInteger();
+
+    @TempDir
+    Path storagePath;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("POST".equals(request.getMethod()) && "/instances".equals(request.getPath())) {
+                    return new MockResponse().setBody(INSTANCE);
+                }
+                if ("/studies/study-1".equals(request.getPath())) {
+                    studyLookups.incrementAndGet();
+                    return new MockResponse().setBody(STUDY);
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        mockWebServer.start();
+        var properties = new LocalDicomServerProperties(mockWebServer.url("").toString().replaceAll("/$", ""), "", "");
+        dicomWebServer = new OrthancDicomWebServer(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void shouldUploadInstancesOfStudyConcurrentlyAndLookUpStudyOnce() throws Exception {
+        var first = Files.write(storagePath.resolve("first.dcm"), new byte[]{1, 2, 3});
+        var second = Files.write(storagePath.resolve("second.dcm"), new byte[]{4, 5, 6});
+
+        var firstUpload = dicomWebServer.uploadAsync(first);
+        var secondUpload = dicomWebServer.uploadAsync(second);
+        CompletableFuture.allOf(firstUpload, secondUpload).join();
+
+        assertThat(firstUpload.join().getStudyInstanceUid()).isEqualTo("1.2.840.1");
+        assertThat(secondUpload.join().getStudyInstanceUid()).isEqualTo("1.2.840.1");
+        assertThat(studyLookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFailUploadWhenServerRejectsInstance() throws Exception {
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(500);
+            }
+        });
+        var instance = Files.write(storagePath.resolve("instance.dcm"), new byte[]{1, 2, 3});
+
+        assertThat(dicomWebServer.uploadAsync(instance))
+                .failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IOException.class);
+    }
+}